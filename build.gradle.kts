@@ -14,6 +14,63 @@ dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter")
 }
 
+// Optional SIMD pixel kernels on the incubating Vector API. They are compiled
+// separately so the app still builds and runs where the module is missing; run with
+// --add-modules jdk.incubator.vector -Dmosaic.simd=true to use them.
+val vector: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+sourceSets.test {
+    runtimeClasspath += vector.output
+}
+
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
+// JMH benchmarks live in src/jmh/java and see the main classes.
+// Run with: gradle jmh [-Pjmh.include=Export] [-Pjmh.args="-p tileCount=10"] [-Pjmh.simd]
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output + vector.output
+}
+
+val jmhVersion = "1.37"
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks headless and writes JSON results to build/reports/jmh."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    jvmArgs("-Djava.awt.headless=true")
+    val resultFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    doFirst { resultFile.parentFile.mkdirs() }
+    // -Pjmh.simd makes the forked JVMs use the Vector API pixel kernels
+    val forkArgs = if (providers.gradleProperty("jmh.simd").isPresent)
+        "-Djava.awt.headless=true --add-modules jdk.incubator.vector -Dmosaic.simd=true"
+    else "-Djava.awt.headless=true"
+    args("-rf", "json", "-rff", resultFile.absolutePath, "-jvmArgsAppend", forkArgs)
+    providers.gradleProperty("jmh.args").orNull?.let { args(it.split(" ").filter(String::isNotBlank)) }
+    providers.gradleProperty("jmh.include").orNull?.let { args(it) }
+}
+
+// Keep the benchmarks compiling with the code they measure
+tasks.check {
+    dependsOn(tasks.named(jmh.classesTaskName))
+}
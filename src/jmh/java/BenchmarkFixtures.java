@@ -0,0 +1,42 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/** Shared setup for the benchmark workloads. */
+class BenchmarkFixtures {
+    // Unscaled side of the square mosaic the tiles are laid out on, about 16 MP
+    static final int MOSAIC_SIDE = 4096;
+
+    /** A 4:3 opaque gradient of roughly the given size. */
+    static BufferedImage createSource(int megapixels) {
+        int width = (int) Math.sqrt(megapixels * 1_000_000.0 * 4 / 3);
+        int height = width * 3 / 4;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x ^ y) & 0xFF);
+            }
+        }
+        return image;
+    }
+
+    /** tileCount images on a square grid covering the mosaic, each showing a different region of one shared source. */
+    static ScaledCanvas createCanvas(int tileCount, SourceImage source) {
+        ScaledCanvas canvas = new ScaledCanvas();
+        int grid = (int) Math.ceil(Math.sqrt(tileCount));
+        int cell = MOSAIC_SIDE / grid;
+        int regionWidth = Math.max(1, source.getWidth() / grid);
+        int regionHeight = Math.max(1, source.getHeight() / grid);
+        for (int i = 0; i < tileCount; i++) {
+            int column = i % grid;
+            int row = i / grid;
+            ScaledComponent sc = new ScaledComponent(source,
+                    new Rectangle(column * regionWidth, row * regionHeight, regionWidth, regionHeight));
+            sc.setImageBounds(new Rectangle(column * cell, row * cell, cell, cell));
+            canvas.add(sc);
+        }
+        canvas.updateChildrenBounds();
+        return canvas;
+    }
+}
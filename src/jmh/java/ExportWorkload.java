@@ -0,0 +1,15 @@
+import benchmarks.Workload;
+
+public class ExportWorkload implements Workload {
+    private final ScaledCanvas canvas;
+
+    public ExportWorkload(Params params) {
+        SourceImage source = SourceImage.of(BenchmarkFixtures.createSource(params.sourceMegapixels()));
+        canvas = BenchmarkFixtures.createCanvas(params.tileCount(), source);
+    }
+
+    @Override
+    public Object run() {
+        return canvas.createUnscaledMosaicImage();
+    }
+}
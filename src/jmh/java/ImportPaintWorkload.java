@@ -0,0 +1,38 @@
+import benchmarks.Workload;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * One full paint of a 1920x1080 canvas whose source is in a decoder layout
+ * (3BYTE_BGR, as ImageIO gives for JPEG), either as decoded or converted to the
+ * compatible layout on import.
+ */
+public class ImportPaintWorkload implements Workload {
+    private final ScaledCanvas canvas;
+    private final BufferedImage screen = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+
+    public ImportPaintWorkload(Params params) {
+        BufferedImage generated = BenchmarkFixtures.createSource(params.sourceMegapixels());
+        BufferedImage decoded = new BufferedImage(generated.getWidth(), generated.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = decoded.createGraphics();
+        g.drawImage(generated, 0, 0, null);
+        g.dispose();
+        BufferedImage image = "compatible".equals(params.variant()) ? ImageLoader.toCompatible(decoded) : decoded;
+        canvas = BenchmarkFixtures.createCanvas(params.tileCount(), SourceImage.of(image));
+        canvas.setSize(screen.getWidth(), screen.getHeight());
+        canvas.setScale(params.zoom());
+        canvas.updateChildrenBounds();
+    }
+
+    @Override
+    public Object run() {
+        Graphics2D g = screen.createGraphics();
+        try {
+            canvas.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return screen;
+    }
+}
@@ -0,0 +1,29 @@
+import benchmarks.Workload;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class PaintWorkload implements Workload {
+    private final ScaledCanvas canvas;
+    private final BufferedImage screen = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+
+    public PaintWorkload(Params params) {
+        SourceImage source = SourceImage.of(BenchmarkFixtures.createSource(params.sourceMegapixels()));
+        canvas = BenchmarkFixtures.createCanvas(params.tileCount(), source);
+        canvas.setSize(screen.getWidth(), screen.getHeight());
+        canvas.setScale(params.zoom());
+        canvas.setSceneMode(params.sceneMode());
+        canvas.updateChildrenBounds();
+    }
+
+    @Override
+    public Object run() {
+        Graphics2D g = screen.createGraphics();
+        try {
+            canvas.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return screen;
+    }
+}
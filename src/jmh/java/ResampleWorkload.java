@@ -0,0 +1,33 @@
+import benchmarks.Workload;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/** Resizes a source with a Resampler kernel, or with bilinear drawImage when the variant is GRAPHICS2D. */
+public class ResampleWorkload implements Workload {
+    private final BufferedImage source;
+    private final int width;
+    private final int height;
+    private final Resampler.Kernel kernel;
+
+    public ResampleWorkload(Params params) {
+        source = BenchmarkFixtures.createSource(params.sourceMegapixels());
+        width = Math.max(1, (int) (source.getWidth() * params.zoom()));
+        height = Math.max(1, (int) (source.getHeight() * params.zoom()));
+        kernel = "GRAPHICS2D".equals(params.variant()) ? null : Resampler.Kernel.valueOf(params.variant());
+    }
+
+    @Override
+    public Object run() {
+        if (kernel != null) {
+            return Resampler.resize(source, width, height, kernel);
+        }
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return resized;
+    }
+}
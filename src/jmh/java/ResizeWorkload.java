@@ -0,0 +1,15 @@
+import benchmarks.Workload;
+
+public class ResizeWorkload implements Workload {
+    private final ScaledComponent component;
+
+    public ResizeWorkload(Params params) {
+        component = new ScaledComponent(BenchmarkFixtures.createSource(params.sourceMegapixels()));
+        component.setResizedScale(params.zoom());
+    }
+
+    @Override
+    public Object run() {
+        return component.resizedImage();
+    }
+}
@@ -0,0 +1,53 @@
+import benchmarks.Workload;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/** Pans or zooms a canvas inside a 1920x1080 viewport and paints what becomes visible. */
+public class ScrollWorkload implements Workload {
+    private final ScaledCanvas canvas;
+    private final JViewport viewport = new JViewport();
+    private final BufferedImage screen = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+    private final double zoom;
+    private final boolean zooming;
+    private int step;
+
+    public ScrollWorkload(Params params) {
+        SourceImage source = SourceImage.of(BenchmarkFixtures.createSource(params.sourceMegapixels()));
+        canvas = BenchmarkFixtures.createCanvas(params.tileCount(), source);
+        zoom = params.zoom();
+        zooming = "zoom".equals(params.variant());
+        viewport.setView(canvas);
+        viewport.setBounds(0, 0, screen.getWidth(), screen.getHeight());
+        canvas.setScale(zoom);
+        canvas.updateChildrenBounds();
+        viewport.doLayout();
+    }
+
+    @Override
+    public Object run() {
+        step++;
+        if (zooming) {
+            Rectangle view = viewport.getViewRect();
+            Point centre = new Point(view.x + view.width / 2, view.y + view.height / 2);
+            canvas.zoomAt(step % 2 == 0 ? zoom : zoom * 1.25, centre);
+        } else {
+            // Pan diagonally by a few scroll units, wrapping at the far corner
+            Dimension size = canvas.getPreferredSize();
+            int range = Math.max(1, Math.min(size.width - screen.getWidth(), size.height - screen.getHeight()));
+            int offset = (step * 5 * AppDefaults.SCROLL_UNIT_INCREMENT) % range;
+            viewport.setViewPosition(new Point(offset, offset));
+        }
+        Rectangle view = viewport.getViewRect();
+        Graphics2D g = screen.createGraphics();
+        try {
+            g.translate(-view.x, -view.y);
+            g.setClip(view);
+            canvas.paint(g);
+        } finally {
+            g.dispose();
+        }
+        return screen;
+    }
+}
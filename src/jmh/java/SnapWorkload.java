@@ -0,0 +1,36 @@
+import benchmarks.Workload;
+
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+
+public class SnapWorkload implements Workload {
+    private final ScaledComponent dragged;
+    private final ScaledComponentMouseAdapter adapter;
+    private final Point[] targets;
+    private int step = 0;
+
+    public SnapWorkload(Params params) {
+        SourceImage source = SourceImage.of(BenchmarkFixtures.createSource(params.sourceMegapixels()));
+        ScaledCanvas canvas = BenchmarkFixtures.createCanvas(params.tileCount(), source);
+        canvas.setScale(params.zoom());
+        canvas.updateChildrenBounds();
+        dragged = (ScaledComponent) canvas.getComponent(canvas.getComponentCount() / 2);
+        adapter = (ScaledComponentMouseAdapter) dragged.getMouseMotionListeners()[0];
+        // Start a move gesture directly; tiny tiles at low zoom would put any press on a resize handle
+        dragged.setResizing(false);
+        dragged.setDragOffset(new Point(0, 0));
+        dragged.setStartLocation(dragged.getLocation());
+        Point start = dragged.getLocation();
+        targets = new Point[]{new Point(start.x + 7, start.y + 3), new Point(start.x - 4, start.y + 9)};
+    }
+
+    @Override
+    public Object run() {
+        Point target = targets[step++ & 1];
+        Point location = dragged.getLocation();
+        adapter.mouseDragged(new MouseEvent(dragged, MouseEvent.MOUSE_DRAGGED, 0, InputEvent.BUTTON1_DOWN_MASK,
+                target.x - location.x, target.y - location.y, 0, false));
+        return dragged.getLocation();
+    }
+}
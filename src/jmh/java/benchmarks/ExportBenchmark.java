@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** ScaledCanvas.createUnscaledMosaicImage for a mosaic of about 16 MP split into tileCount images. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class ExportBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tileCount;
+
+    @Param({"1", "12", "50"})
+    public int sourceMegapixels;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("ExportWorkload", new Workload.Params(tileCount, sourceMegapixels, 1.0, false));
+    }
+
+    @Benchmark
+    public Object export() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** One full paint of a 1920x1080 canvas from a source kept in its decoded layout or made compatible on import. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class ImportPaintBenchmark {
+    @Param({"10", "100"})
+    public int tileCount;
+
+    @Param({"1.0", "2.0"})
+    public double zoom;
+
+    @Param({"decoded", "compatible"})
+    public String variant;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("ImportPaintWorkload", new Workload.Params(tileCount, 4, zoom, false, variant));
+    }
+
+    @Benchmark
+    public Object paint() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** One full paint of a 1920x1080 canvas at a zoom level, with Swing children or in scene mode. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class PaintBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tileCount;
+
+    @Param({"0.1", "0.5", "1.0"})
+    public double zoom;
+
+    @Param({"false", "true"})
+    public boolean sceneMode;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("PaintWorkload", new Workload.Params(tileCount, 1, zoom, sceneMode));
+    }
+
+    @Benchmark
+    public Object paint() {
+        return workload.run();
+    }
+}
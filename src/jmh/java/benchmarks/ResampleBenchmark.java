@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Resizing one whole source by the zoom factor with each Resampler kernel and with Graphics2D.drawImage. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class ResampleBenchmark {
+    @Param({"12", "50"})
+    public int sourceMegapixels;
+
+    @Param({"0.1", "0.5", "1.5"})
+    public double zoom;
+
+    @Param({"GRAPHICS2D", "BOX", "BILINEAR", "BICUBIC", "LANCZOS3"})
+    public String kernel;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("ResampleWorkload", new Workload.Params(1, sourceMegapixels, zoom, false, kernel));
+    }
+
+    @Benchmark
+    public Object resize() {
+        return workload.run();
+    }
+}
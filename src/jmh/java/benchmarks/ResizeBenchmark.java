@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** ScaledComponent.resizedImage for one source resized by the zoom factor. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class ResizeBenchmark {
+    @Param({"1", "12", "50"})
+    public int sourceMegapixels;
+
+    @Param({"0.25", "0.5", "1.5"})
+    public double zoom;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("ResizeWorkload", new Workload.Params(1, sourceMegapixels, zoom, false));
+    }
+
+    @Benchmark
+    public Object resizedImage() {
+        return workload.run();
+    }
+}
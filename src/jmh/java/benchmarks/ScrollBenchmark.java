@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** One pan step or zoom step of a canvas in a 1920x1080 viewport, including the repaint of the view. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class ScrollBenchmark {
+    @Param({"1000", "10000", "40000"})
+    public int tileCount;
+
+    @Param({"1.0", "4.0"})
+    public double zoom;
+
+    @Param({"pan", "zoom"})
+    public String variant;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("ScrollWorkload", new Workload.Params(tileCount, 1, zoom, false, variant));
+    }
+
+    @Benchmark
+    public Object step() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** One move-mode drag step, including grid and edge snapping against tileCount images. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Djava.awt.headless=true"})
+public class SnapBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int tileCount;
+
+    @Param({"0.1", "0.5", "1.0"})
+    public double zoom;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create("SnapWorkload", new Workload.Params(tileCount, 1, zoom, false));
+    }
+
+    @Benchmark
+    public Object drag() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,25 @@
+package benchmarks;
+
+/**
+ * Code being measured. The application classes live in the default package,
+ * which JMH benchmarks cannot be in and cannot import from, so each workload is
+ * a default-package class implementing this interface and loaded by name.
+ */
+public interface Workload {
+    /** variant selects between implementations within one workload, where it has several. */
+    record Params(int tileCount, int sourceMegapixels, double zoom, boolean sceneMode, String variant) {
+        public Params(int tileCount, int sourceMegapixels, double zoom, boolean sceneMode) {
+            this(tileCount, sourceMegapixels, zoom, sceneMode, null);
+        }
+    }
+
+    Object run();
+
+    static Workload create(String className, Params params) {
+        try {
+            return (Workload) Class.forName(className).getConstructor(Params.class).newInstance(params);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create workload " + className, ex);
+        }
+    }
+}
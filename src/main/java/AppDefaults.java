@@ -2,4 +2,23 @@ public class AppDefaults {
     public static final int FRAME_WIDTH = 800;
     public static final int FRAME_HEIGHT = 500;
     public static final int GRID_SIZE = 5;
+    public static final int SCROLL_UNIT_INCREMENT = 16;
+    public static final long STREAMING_EXPORT_PIXEL_THRESHOLD = Long.getLong("mosaic.streamingExportPixels", 16_000_000L);
+    public static final int EXPORT_BAND_HEIGHT = Integer.getInteger("mosaic.exportBandHeight", 256);
+    public static final int DEEP_ZOOM_TILE_SIZE = Integer.getInteger("mosaic.deepZoomTileSize", 254);
+    public static final int DEEP_ZOOM_OVERLAP = Integer.getInteger("mosaic.deepZoomOverlap", 1);
+    public static final String DEEP_ZOOM_FORMAT = System.getProperty("mosaic.deepZoomFormat", "jpg");
+    public static final int EXPORT_TILE_SIZE = Integer.getInteger("mosaic.exportTileSize", 256);
+    public static final boolean PROXY_DECODE = !Boolean.getBoolean("mosaic.disableProxyDecode");
+    public static final int PROXY_MAX_DIMENSION = Integer.getInteger("mosaic.proxyMaxDimension", 2048);
+    public static final int PLACEHOLDER_SIZE = 256;
+    public static final boolean OFF_HEAP_RASTERS = Boolean.getBoolean("mosaic.offHeapRasters");
+    public static final Resampler.Kernel RESAMPLE_KERNEL =
+            Resampler.Kernel.valueOf(System.getProperty("mosaic.resampleKernel", "LANCZOS3"));
+    public static final boolean SIMD_KERNELS = Boolean.getBoolean("mosaic.simd");
+    public static final int AUTO_LAYOUT_SPACING = Integer.getInteger("mosaic.autoLayoutSpacing", 0);
+    public static final int PHOTOMOSAIC_CELL_SIZE = Integer.getInteger("mosaic.photomosaicCellSize", 64);
+    public static final int SPATIAL_INDEX_CELL_SIZE = 512;
+    public static final long UNDO_MEMORY_BUDGET = Long.getLong("mosaic.undoBudgetBytes", 256L << 20);
+    public static final long UNDO_MERGE_MILLIS = Long.getLong("mosaic.undoMergeMillis", 750L);
 }
\ No newline at end of file
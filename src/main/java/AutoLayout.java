@@ -0,0 +1,142 @@
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Computes new unscaled bounds for a list of images from their current sizes.
+ * Every mode keeps each image's aspect ratio and runs in O(n log n), so it stays
+ * fast for tens of thousands of images. The result is roughly square and starts
+ * at the origin.
+ * <ul>
+ * <li>GRID: equal cells, each image fitted and centred in its cell.</li>
+ * <li>JUSTIFIED_ROWS: rows of equal height, each scaled to fill the full width.</li>
+ * <li>BIN_PACK: images at their current size, tallest first, on shelves filled best fit.</li>
+ * </ul>
+ * GRID and JUSTIFIED_ROWS size images around the median current height.
+ */
+public class AutoLayout {
+    public enum Mode { GRID, JUSTIFIED_ROWS, BIN_PACK }
+
+    /** Bounds for each size, in the same order, with spacing pixels between neighbours. */
+    public static List<Rectangle> layout(List<Dimension> sizes, Mode mode, int spacing) {
+        if (sizes.isEmpty()) return new ArrayList<>();
+        return switch (mode) {
+            case GRID -> grid(sizes, spacing);
+            case JUSTIFIED_ROWS -> justifiedRows(sizes, spacing);
+            case BIN_PACK -> binPack(sizes, spacing);
+        };
+    }
+
+    private static List<Rectangle> grid(List<Dimension> sizes, int spacing) {
+        int cellHeight = medianHeight(sizes);
+        int cellWidth = Math.max(1, (int) Math.round(cellHeight * medianAspect(sizes)));
+        int columns = Math.max(1, (int) Math.round(Math.sqrt(sizes.size() * (double) cellHeight / cellWidth)));
+        List<Rectangle> result = new ArrayList<>(sizes.size());
+        for (int i = 0; i < sizes.size(); i++) {
+            Dimension size = sizes.get(i);
+            double fit = Math.min((double) cellWidth / size.width, (double) cellHeight / size.height);
+            int w = Math.max(1, (int) Math.round(size.width * fit));
+            int h = Math.max(1, (int) Math.round(size.height * fit));
+            int x = (i % columns) * (cellWidth + spacing) + (cellWidth - w) / 2;
+            int y = (i / columns) * (cellHeight + spacing) + (cellHeight - h) / 2;
+            result.add(new Rectangle(x, y, w, h));
+        }
+        return result;
+    }
+
+    private static List<Rectangle> justifiedRows(List<Dimension> sizes, int spacing) {
+        int rowHeight = medianHeight(sizes);
+        double totalWidth = 0;
+        for (Dimension size : sizes) {
+            totalWidth += aspect(size) * rowHeight + spacing;
+        }
+        // Width for which the rows stack up to about as high as they are wide
+        int width = (int) Math.ceil(Math.sqrt(totalWidth * (rowHeight + spacing)));
+
+        List<Rectangle> result = new ArrayList<>(sizes.size());
+        int y = 0;
+        int start = 0;
+        double aspectSum = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            aspectSum += aspect(sizes.get(i));
+            int gaps = (i - start) * spacing;
+            boolean full = aspectSum * rowHeight + gaps >= width;
+            if (full || i == sizes.size() - 1) {
+                // A full row is scaled to fill the width exactly, a short last row keeps the target height
+                double exact = full ? (width - gaps) / aspectSum : rowHeight;
+                int height = Math.max(1, (int) Math.round(exact));
+                // Round running totals rather than single widths so the error does not add up along the row
+                double covered = 0;
+                for (int j = start; j <= i; j++) {
+                    int x = (int) Math.round(covered * exact) + (j - start) * spacing;
+                    covered += aspect(sizes.get(j));
+                    int right = full && j == i ? width : (int) Math.round(covered * exact) + (j - start) * spacing;
+                    result.add(new Rectangle(x, y, Math.max(1, right - x), height));
+                }
+                y += height + spacing;
+                start = i + 1;
+                aspectSum = 0;
+            }
+        }
+        return result;
+    }
+
+    private static List<Rectangle> binPack(List<Dimension> sizes, int spacing) {
+        Integer[] order = new Integer[sizes.size()];
+        long area = 0;
+        int widest = 0;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            Dimension size = sizes.get(i);
+            area += (long) (size.width + spacing) * (size.height + spacing);
+            widest = Math.max(widest, size.width);
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> sizes.get(i).height).reversed());
+        int width = Math.max(widest, (int) Math.ceil(Math.sqrt(area)));
+
+        // Open shelves by the width they have left. Images come tallest first, so any shelf is tall enough.
+        TreeMap<Integer, List<Point>> shelves = new TreeMap<>();
+        Rectangle[] result = new Rectangle[order.length];
+        int nextShelfY = 0;
+        for (int i : order) {
+            Dimension size = sizes.get(i);
+            var fit = shelves.ceilingEntry(size.width);
+            Point shelf;
+            int free;
+            if (fit != null) {
+                free = fit.getKey();
+                List<Point> list = fit.getValue();
+                shelf = list.remove(list.size() - 1);
+                if (list.isEmpty()) shelves.remove(free);
+            } else {
+                free = width;
+                shelf = new Point(0, nextShelfY);
+                nextShelfY += size.height + spacing;
+            }
+            result[i] = new Rectangle(shelf.x, shelf.y, size.width, size.height);
+            shelf.x += size.width + spacing;
+            free -= size.width + spacing;
+            if (free > 0) {
+                shelves.computeIfAbsent(free, k -> new ArrayList<>()).add(shelf);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private static double aspect(Dimension size) {
+        return (double) size.width / Math.max(1, size.height);
+    }
+
+    private static int medianHeight(List<Dimension> sizes) {
+        int[] heights = sizes.stream().mapToInt(d -> d.height).sorted().toArray();
+        return Math.max(1, heights[heights.length / 2]);
+    }
+
+    private static double medianAspect(List<Dimension> sizes) {
+        double[] aspects = sizes.stream().mapToDouble(AutoLayout::aspect).sorted().toArray();
+        return aspects[aspects.length / 2];
+    }
+}
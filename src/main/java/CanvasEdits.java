@@ -0,0 +1,143 @@
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/** The undoable edits made on a {@link ScaledCanvas}. */
+public class CanvasEdits {
+    public enum Kind { MOVE, RESIZE, CROP }
+
+    /** Move, resize or crop of one component. Consecutive moves of the same component merge. */
+    public record Geometry(ScaledComponent component, ScaledComponent.Geometry before, ScaledComponent.Geometry after,
+                           Kind kind, long time) implements EditHistory.Edit {
+        public Geometry(ScaledComponent component, ScaledComponent.Geometry before, ScaledComponent.Geometry after, Kind kind) {
+            this(component, before, after, kind, System.currentTimeMillis());
+        }
+
+        @Override
+        public void undo() {
+            component.setGeometry(before);
+        }
+
+        @Override
+        public void redo() {
+            component.setGeometry(after);
+        }
+
+        @Override
+        public EditHistory.Edit mergeWith(EditHistory.Edit next) {
+            if (next instanceof Geometry g && kind == Kind.MOVE && g.kind == Kind.MOVE && g.component == component
+                    && g.before.equals(after) && g.time - time <= AppDefaults.UNDO_MERGE_MILLIS) {
+                return new Geometry(component, before, g.after, Kind.MOVE, g.time);
+            }
+            return null;
+        }
+    }
+
+    /** New geometry for many components at once, such as an auto layout. */
+    public record Arrange(ScaledCanvas canvas, List<ScaledComponent> components, List<ScaledComponent.Geometry> before,
+                          List<ScaledComponent.Geometry> after) implements EditHistory.Edit {
+        public Arrange {
+            components = List.copyOf(components);
+            before = List.copyOf(before);
+            after = List.copyOf(after);
+        }
+
+        @Override
+        public void undo() {
+            canvas.applyGeometries(components, before);
+        }
+
+        @Override
+        public void redo() {
+            canvas.applyGeometries(components, after);
+        }
+    }
+
+    /** A component at a position in the canvas z-order, 0 being the front. */
+    public record Placement(ScaledComponent component, int zOrder) {
+    }
+
+    /**
+     * Components taken off the canvas and others put on it in one step, covering
+     * split (one off, two or a whole grid on) and delete (one off, none on). The
+     * canvas is laid out once per step, not once per component.
+     *
+     * retainedBytes is worked out when the edit is made, so the history's total
+     * does not change when placeholders in it finish loading later.
+     */
+    public record Replace(ScaledCanvas canvas, List<Placement> removed, List<Placement> added, long retainedBytes)
+            implements EditHistory.Edit {
+        public Replace {
+            removed = List.copyOf(removed);
+            added = List.copyOf(added);
+        }
+
+        public Replace(ScaledCanvas canvas, List<Placement> removed, List<Placement> added) {
+            this(canvas, removed, added, bytesOnOneSide(removed, added));
+        }
+
+        @Override
+        public void undo() {
+            swap(added, removed);
+        }
+
+        @Override
+        public void redo() {
+            swap(removed, added);
+        }
+
+        private void swap(List<Placement> off, List<Placement> on) {
+            for (Placement p : off) {
+                canvas.remove(p.component());
+            }
+            // Restore from the front back so each position is still valid when it is used
+            List<Placement> ordered = on.stream().sorted(Comparator.comparingInt(Placement::zOrder)).toList();
+            for (Placement p : ordered) {
+                canvas.add(p.component());
+                canvas.setComponentZOrder(p.component(), Math.min(p.zOrder(), canvas.getComponentCount() - 1));
+            }
+            canvas.updateChildrenBounds();
+        }
+
+        /** Proxy bytes of sources on only one side, since whichever side is off the canvas lives on in the history. */
+        private static long bytesOnOneSide(List<Placement> removed, List<Placement> added) {
+            Set<SourceImage> removedSources = sources(removed);
+            Set<SourceImage> addedSources = sources(added);
+            return bytesOfSourcesNotIn(removedSources, addedSources) + bytesOfSourcesNotIn(addedSources, removedSources);
+        }
+
+        private static Set<SourceImage> sources(List<Placement> placements) {
+            Set<SourceImage> sources = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Placement p : placements) {
+                if (p.component().isLoaded()) sources.add(p.component().getSourceImage());
+            }
+            return sources;
+        }
+
+        private static long bytesOfSourcesNotIn(Set<SourceImage> sources, Set<SourceImage> others) {
+            long bytes = 0;
+            for (SourceImage source : sources) {
+                if (others.contains(source)) continue;
+                bytes += (long) source.getProxyWidth() * source.getProxyHeight() * Integer.BYTES;
+            }
+            return bytes;
+        }
+    }
+
+    /** Bring to front, send to back or a one step move in the z-order. */
+    public record ZOrder(ScaledCanvas canvas, ScaledComponent component, int from, int to) implements EditHistory.Edit {
+        @Override
+        public void undo() {
+            canvas.setComponentZOrder(component, from);
+            canvas.repaintRegion(canvas.paintedBounds(component));
+        }
+
+        @Override
+        public void redo() {
+            canvas.setComponentZOrder(component, to);
+            canvas.repaintRegion(canvas.paintedBounds(component));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/**
+ * Writes a mosaic as a Deep Zoom image: name.dzi describing the pyramid and
+ * name_files/level/column_row.format holding its tiles. The top level is the
+ * mosaic at full size and every level below it is half the size, down to 1x1.
+ *
+ * Only the top level is composited from the sources, one band of tileSize rows at
+ * a time. Each band is cut into tiles and halved with a 2x2 box; two halved bands
+ * make a band of the next level, which is processed the same way. Every level
+ * keeps at most two bands, so memory stays a few full-width bands however tall
+ * the mosaic is. Compositing, halving and tile encoding are parallel.
+ */
+public class DeepZoomWriter {
+    private final File folder;
+    private final int tileSize;
+    private final int overlap;
+    private final String format;
+    private final boolean opaque;
+
+    private DeepZoomWriter(File folder, int tileSize, int overlap, String format) {
+        this.folder = folder;
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+        this.format = format;
+        this.opaque = !ImageIO.getImageWriters(
+                ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB), format).hasNext();
+    }
+
+    /** The tile folder that belongs to a .dzi file. */
+    public static File tileFolder(File dzi) {
+        String name = dzi.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(dzi.getAbsoluteFile().getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + "_files");
+    }
+
+    /**
+     * Writes the pyramid of renderer's mosaic. Tiles are tileSize pixels plus
+     * overlap pixels shared with each neighbour; formats without alpha are
+     * flattened onto white. progress hears about every band of the top level.
+     */
+    public static void write(MosaicRenderer renderer, File dzi, int tileSize, int overlap, String format,
+                             MosaicRenderer.Progress progress) throws IOException {
+        Rectangle bounds = renderer.getBounds();
+        if (bounds.isEmpty()) {
+            throw new IOException("Nothing to export");
+        }
+        if (tileSize <= 0 || overlap < 0) {
+            throw new IllegalArgumentException("Bad tile size " + tileSize + " or overlap " + overlap);
+        }
+        if (!ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            throw new IOException("No writer for " + format);
+        }
+        DeepZoomWriter writer = new DeepZoomWriter(tileFolder(dzi), tileSize, overlap, format);
+        int maxLevel = 32 - Integer.numberOfLeadingZeros(Math.max(bounds.width, bounds.height) - 1);
+        Level top = writer.new Level(maxLevel, bounds.width, bounds.height);
+        for (int y = 0; y < bounds.height; y += tileSize) {
+            int rows = Math.min(tileSize, bounds.height - y);
+            BufferedImage band = renderer.renderBand(new Rectangle(bounds.x, bounds.y + y, bounds.width, rows));
+            renderer.releasePixelsAbove(bounds.y + y + rows);
+            top.accept(((DataBufferInt) band.getRaster().getDataBuffer()).getData(), rows);
+            if (progress != null) progress.rowsDone(y + rows, bounds.height);
+        }
+        top.finish();
+
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(dzi), StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<Image xmlns=\"http://schemas.microsoft.com/deepzoom/2008\" TileSize=\"" + tileSize
+                    + "\" Overlap=\"" + overlap + "\" Format=\"" + format + "\">\n");
+            out.write("  <Size Width=\"" + bounds.width + "\" Height=\"" + bounds.height + "\"/>\n");
+            out.write("</Image>\n");
+        }
+    }
+
+    /** One level of the pyramid, taking its bands from the top down. */
+    private class Level {
+        private final int width;
+        private final int height;
+        private final Level next;
+        private final File levelFolder;
+        private int bandIndex;
+        // Band waiting for the first rows of the band below it, for the overlap
+        private int[] pending;
+        private int pendingRows;
+        // Last overlap rows of the band before pending
+        private int[] previousTail;
+        // Band waiting for its partner to be halved into the next level
+        private int[] half;
+        private int halfRows;
+
+        Level(int level, int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.next = level > 0 ? new Level(level - 1, (width + 1) / 2, (height + 1) / 2) : null;
+            this.levelFolder = new File(folder, Integer.toString(level));
+        }
+
+        void accept(int[] band, int rows) throws IOException {
+            if (pending != null) {
+                writeTiles(band);
+            }
+            pending = band;
+            pendingRows = rows;
+            if (next != null) {
+                if (half == null) {
+                    half = band;
+                    halfRows = rows;
+                } else {
+                    next.accept(halve(half, halfRows, band, rows), (halfRows + rows + 1) / 2);
+                    half = null;
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            if (pending != null) {
+                writeTiles(null);
+            }
+            if (next != null) {
+                if (half != null) {
+                    next.accept(halve(half, halfRows, null, 0), (halfRows + 1) / 2);
+                    half = null;
+                }
+                next.finish();
+            }
+        }
+
+        /** Writes the tiles of the pending band; below holds the band after it, or null at the bottom. */
+        private void writeTiles(int[] below) throws IOException {
+            if (bandIndex == 0 && !levelFolder.isDirectory() && !levelFolder.mkdirs()) {
+                throw new IOException("Cannot create " + levelFolder);
+            }
+            int top = bandIndex * tileSize;
+            int y0 = Math.max(0, top - overlap);
+            int y1 = Math.min(height, top + pendingRows + overlap);
+            int columns = (width + tileSize - 1) / tileSize;
+            int row = bandIndex;
+            int[] above = previousTail;
+            try {
+                IntStream.range(0, columns).parallel().forEach(column -> {
+                    int x0 = Math.max(0, column * tileSize - overlap);
+                    int x1 = Math.min(width, (column + 1) * tileSize + overlap);
+                    int w = x1 - x0;
+                    BufferedImage tile = new BufferedImage(w, y1 - y0,
+                            opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+                    int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+                    for (int y = y0; y < y1; y++) {
+                        int[] source;
+                        int offset;
+                        if (y < top) {
+                            source = above;
+                            offset = (y - top + overlap) * width;
+                        } else if (y < top + pendingRows) {
+                            source = pending;
+                            offset = (y - top) * width;
+                        } else {
+                            source = below;
+                            offset = (y - top - pendingRows) * width;
+                        }
+                        System.arraycopy(source, offset + x0, pixels, (y - y0) * w, w);
+                    }
+                    if (opaque) {
+                        for (int i = 0; i < pixels.length; i++) {
+                            pixels[i] = onWhite(pixels[i]);
+                        }
+                    }
+                    File file = new File(levelFolder, column + "_" + row + "." + format);
+                    try {
+                        ImageIO.write(tile, format, file);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+
+            if (overlap > 0) {
+                int tail = Math.min(overlap, pendingRows);
+                previousTail = new int[overlap * width];
+                System.arraycopy(pending, (pendingRows - tail) * width, previousTail, (overlap - tail) * width, tail * width);
+            }
+            pending = null;
+            bandIndex++;
+        }
+
+        /** Halves the rows of first and then second (which may be null) with a 2x2 box in premultiplied space. */
+        private int[] halve(int[] first, int firstRows, int[] second, int secondRows) {
+            int rows = firstRows + secondRows;
+            int outWidth = (width + 1) / 2;
+            int outRows = (rows + 1) / 2;
+            int[] out = new int[outWidth * outRows];
+            IntStream.range(0, outRows).parallel().forEach(y -> {
+                int r0 = 2 * y;
+                int r1 = Math.min(rows - 1, r0 + 1);
+                int[] band0 = r0 < firstRows ? first : second;
+                int[] band1 = r1 < firstRows ? first : second;
+                int row0 = (r0 < firstRows ? r0 : r0 - firstRows) * width;
+                int row1 = (r1 < firstRows ? r1 : r1 - firstRows) * width;
+                for (int x = 0; x < outWidth; x++) {
+                    int x0 = 2 * x;
+                    int x1 = Math.min(width - 1, x0 + 1);
+                    out[y * outWidth + x] = ScalarPixelKernels.average(band0[row0 + x0], band0[row0 + x1],
+                            band1[row1 + x0], band1[row1 + x1]);
+                }
+            });
+            return out;
+        }
+    }
+
+    /** A non-premultiplied ARGB pixel composited over white. */
+    private static int onWhite(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) return argb;
+        int white = 255 * (255 - a);
+        int r = (((argb >> 16) & 0xFF) * a + white + 127) / 255;
+        int g = (((argb >> 8) & 0xFF) * a + white + 127) / 255;
+        int b = ((argb & 0xFF) * a + white + 127) / 255;
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
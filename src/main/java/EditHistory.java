@@ -0,0 +1,106 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo and redo as a log of small edits. Edits hold geometry and references to
+ * the components they took off or put on the canvas, never pixels. Once the
+ * rasters kept alive only by the history exceed the memory budget, the oldest
+ * edits are forgotten.
+ */
+public class EditHistory {
+    public interface Edit {
+        void undo();
+
+        void redo();
+
+        /** Bytes of raster this edit keeps reachable that the canvas may no longer hold. */
+        default long retainedBytes() {
+            return 0;
+        }
+
+        /** A single edit doing this and then next, or null if they should stay separate. */
+        default Edit mergeWith(Edit next) {
+            return null;
+        }
+    }
+
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    private final long budgetBytes;
+    private long retainedBytes = 0;
+    private boolean applying = false;
+
+    public EditHistory() {
+        this(AppDefaults.UNDO_MEMORY_BUDGET);
+    }
+
+    public EditHistory(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** Adds an edit that has already been applied. Ignored while an undo or redo is running. */
+    public void record(Edit edit) {
+        if (applying) return;
+        for (Edit undone : redoStack) {
+            retainedBytes -= undone.retainedBytes();
+        }
+        redoStack.clear();
+        Edit last = undoStack.peekLast();
+        Edit merged = last == null ? null : last.mergeWith(edit);
+        if (merged != null) {
+            undoStack.removeLast();
+            retainedBytes -= last.retainedBytes();
+            edit = merged;
+        }
+        undoStack.addLast(edit);
+        retainedBytes += edit.retainedBytes();
+        while (retainedBytes > budgetBytes && undoStack.size() > 1) {
+            retainedBytes -= undoStack.removeFirst().retainedBytes();
+        }
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    public int getUndoCount() {
+        return undoStack.size();
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public void undo() {
+        Edit edit = undoStack.pollLast();
+        if (edit == null) return;
+        apply(edit::undo);
+        redoStack.addLast(edit);
+    }
+
+    public void redo() {
+        Edit edit = redoStack.pollLast();
+        if (edit == null) return;
+        apply(edit::redo);
+        undoStack.addLast(edit);
+    }
+
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        retainedBytes = 0;
+    }
+
+    private void apply(Runnable action) {
+        applying = true;
+        try {
+            action.run();
+        } finally {
+            applying = false;
+        }
+    }
+}
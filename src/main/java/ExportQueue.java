@@ -0,0 +1,281 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs image exports one after another on a background thread, so the canvas
+ * stays editable while they render. Each job owns a {@link MosaicRenderer}, which
+ * is an immutable snapshot of the layout taken when the job was submitted; later
+ * edits do not change what it writes. Compositing inside a job is still parallel.
+ *
+ * The listener hears about every change of state and every whole percent of
+ * progress, on the export thread. Cancelled and failed jobs delete what they had
+ * written.
+ */
+public class ExportQueue {
+    public static final String DEEP_ZOOM = "dzi";
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    /**
+     * One export of a snapshot to a file. The format comes from the file name, PNG
+     * by default; a .dzi file gets a Deep Zoom pyramid.
+     */
+    public class Job {
+        private final MosaicRenderer renderer;
+        private final File file;
+        private final String format;
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+        private final CompletableFuture<Job> finished = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile double progress;
+        private volatile Throwable error;
+
+        private Job(MosaicRenderer renderer, File file) {
+            this.renderer = renderer;
+            this.file = file;
+            this.format = formatOf(file);
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public Rectangle getBounds() {
+            return renderer.getBounds();
+        }
+
+        public State getState() {
+            return state.get();
+        }
+
+        /** Fraction done, 0 to 1. */
+        public double getProgress() {
+            return progress;
+        }
+
+        /** Why the job failed, or null. */
+        public Throwable getError() {
+            return error;
+        }
+
+        /** Completes with this job once it is done, failed or cancelled. */
+        public CompletableFuture<Job> whenFinished() {
+            return finished;
+        }
+
+        /** Drops a queued job, or stops a running one after its current band. */
+        public void cancel() {
+            cancelled = true;
+            if (state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+                finish();
+            }
+        }
+
+        private void run() {
+            if (!state.compareAndSet(State.QUEUED, State.RUNNING)) return;
+            listener.accept(this);
+            try {
+                export(this);
+                state.set(State.DONE);
+            } catch (CancellationException ex) {
+                deleteOutput();
+                state.set(State.CANCELLED);
+            } catch (Throwable ex) {
+                // Errors too, such as running out of memory, so the job still finishes
+                deleteOutput();
+                error = ex;
+                state.set(State.FAILED);
+            }
+            finish();
+        }
+
+        private void deleteOutput() {
+            file.delete();
+            if (format.equals(DEEP_ZOOM)) {
+                try (var paths = Files.walk(DeepZoomWriter.tileFolder(file).toPath())) {
+                    paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                } catch (IOException | UncheckedIOException ex) {
+                    // Nothing was written yet
+                }
+            }
+        }
+
+        private void finish() {
+            synchronized (jobs) {
+                jobs.remove(this);
+            }
+            listener.accept(this);
+            finished.complete(this);
+        }
+
+        private void setProgress(double done) {
+            if (cancelled) throw new CancellationException();
+            boolean changed = (int) (done * 100) != (int) (progress * 100);
+            progress = done;
+            if (changed) listener.accept(this);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mosaic-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Consumer<Job> listener;
+    // Queued and running jobs, in order
+    private final List<Job> jobs = new ArrayList<>();
+
+    public ExportQueue(Consumer<Job> listener) {
+        this.listener = listener;
+    }
+
+    /** Queues an export of renderer to file and returns at once. */
+    public Job submit(MosaicRenderer renderer, File file) {
+        Job job = new Job(renderer, file);
+        synchronized (jobs) {
+            jobs.add(job);
+        }
+        listener.accept(job);
+        executor.execute(job::run);
+        return job;
+    }
+
+    /** Jobs not finished yet, the running one first. */
+    public List<Job> getPendingJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs);
+        }
+    }
+
+    /** Lower-case suffix of file if ImageIO can write it or it is "dzi", otherwise "png". */
+    public static String formatOf(File file) {
+        String name = file.getName();
+        String suffix = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        boolean known = suffix.equals(DEEP_ZOOM) || ImageIO.getImageWritersBySuffix(suffix).hasNext();
+        return name.contains(".") && known ? suffix : "png";
+    }
+
+    private static void export(Job job) throws IOException {
+        MosaicRenderer renderer = job.renderer;
+        Rectangle bounds = renderer.getBounds();
+        if (bounds.isEmpty()) {
+            throw new IOException("Nothing to export");
+        }
+        MosaicEvents.Export event = new MosaicEvents.Export();
+        long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+        event.begin();
+        boolean deepZoom = job.format.equals(DEEP_ZOOM);
+        boolean streaming = deepZoom || job.format.equals("png")
+                && renderer.getPixelCount() > AppDefaults.STREAMING_EXPORT_PIXEL_THRESHOLD;
+        if (deepZoom) {
+            DeepZoomWriter.write(renderer, job.file, AppDefaults.DEEP_ZOOM_TILE_SIZE, AppDefaults.DEEP_ZOOM_OVERLAP,
+                    AppDefaults.DEEP_ZOOM_FORMAT, (rows, total) -> job.setProgress((double) rows / total));
+        } else if (streaming) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(job.file))) {
+                renderer.writePng(out, AppDefaults.EXPORT_BAND_HEIGHT,
+                        (rows, total) -> job.setProgress((double) rows / total));
+            }
+        } else {
+            // Rendering counts for the first half, encoding for the second
+            BufferedImage image = renderer.render(AppDefaults.EXPORT_BAND_HEIGHT,
+                    (rows, total) -> job.setProgress(0.5 * rows / total));
+            write(job, image);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = job.file.getPath();
+            event.width = bounds.width;
+            event.height = bounds.height;
+            event.tileCount = renderer.getTiles().size();
+            event.streaming = streaming;
+            event.bytes = job.file.length();
+            event.allocatedBytes = MosaicEvents.allocatedBytes() - allocated;
+            event.commit();
+        }
+    }
+
+    /** Encodes image with an ImageIO writer, flattening it onto white for formats without alpha. */
+    private static void write(Job job, BufferedImage image) throws IOException {
+        if (!ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), job.format).hasNext()) {
+            BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = opaque.createGraphics();
+            g.drawImage(image, 0, 0, Color.WHITE, null);
+            g.dispose();
+            image = opaque;
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), job.format);
+        if (!writers.hasNext()) {
+            throw new IOException("No writer for " + job.format);
+        }
+        ImageWriter writer = writers.next();
+        writer.addIIOWriteProgressListener(new IIOWriteProgressListener() {
+            @Override
+            public void imageProgress(ImageWriter source, float percentageDone) {
+                try {
+                    job.setProgress(0.5 + percentageDone / 200);
+                } catch (CancellationException ex) {
+                    source.abort();
+                }
+            }
+
+            @Override
+            public void imageStarted(ImageWriter source, int imageIndex) {
+            }
+
+            @Override
+            public void imageComplete(ImageWriter source) {
+            }
+
+            @Override
+            public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+            }
+
+            @Override
+            public void thumbnailProgress(ImageWriter source, float percentageDone) {
+            }
+
+            @Override
+            public void thumbnailComplete(ImageWriter source) {
+            }
+
+            @Override
+            public void writeAborted(ImageWriter source) {
+            }
+        });
+        // An image output stream writes over an existing file without truncating it
+        job.file.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(job.file)) {
+            if (out == null) {
+                throw new IOException("Cannot write " + job.file);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), null);
+        } finally {
+            writer.dispose();
+        }
+        if (job.cancelled) throw new CancellationException();
+    }
+}
@@ -0,0 +1,271 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-folder cache of tile library features in a single binary file next to the
+ * images. Entries are keyed by path relative to the folder, file size and
+ * modification time; a rescan walks the folder in parallel and only decodes files
+ * that are new or changed. Files in formats no reader knows are remembered too,
+ * with a width of 0, so they are not retried every time; files whose read fails
+ * are left out and tried again on the next scan.
+ *
+ * The cache is memory-mapped when read. Thumbnails stay in the mapping and are
+ * only copied out when asked for. Their shorter side is the photomosaic cell size,
+ * so a warm cache lays out a photomosaic without decoding any tile; a cache
+ * written for another cell size is rebuilt.
+ * <pre>
+ * "MOSAICFEATURES" version thumbnail-size count
+ * per entry: path, file size, modified, width, height, features (15 floats),
+ *            thumbnail width, thumbnail height, thumbnail offset
+ * thumbnails as packed RGB bytes
+ * </pre>
+ */
+public class FeatureCache {
+    public static final String FILE_NAME = ".mosaic-features";
+    private static final String MAGIC = "MOSAICFEATURES";
+    private static final int VERSION = 2;
+    // Shorter side of the stored thumbnails, so one covers a photomosaic cell of the default size
+    static final int THUMBNAIL_SIZE = AppDefaults.PHOTOMOSAIC_CELL_SIZE;
+    // Very elongated images keep a thumbnail no longer than this and are decoded again when used
+    private static final int THUMBNAIL_MAX_LENGTH = 8 * THUMBNAIL_SIZE;
+
+    /** What the cache knows about one file. thumbnail holds width x height RGB triples. */
+    record Entry(String path, long size, long modified, int width, int height, float[] features,
+                 int thumbnailWidth, int thumbnailHeight, ByteBuffer thumbnail) {
+        boolean isImage() {
+            return width > 0;
+        }
+
+        /** This entry with its thumbnail copied to the heap, out of any mapped cache file. */
+        Entry detached() {
+            if (!thumbnail.isDirect()) return this;
+            byte[] rgb = new byte[thumbnail.capacity()];
+            thumbnail.get(0, rgb);
+            return new Entry(path, size, modified, width, height, features, thumbnailWidth, thumbnailHeight,
+                    ByteBuffer.wrap(rgb));
+        }
+
+        BufferedImage thumbnailImage() {
+            BufferedImage image = new BufferedImage(thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_RGB);
+            byte[] rgb = new byte[thumbnailWidth * thumbnailHeight * 3];
+            thumbnail.get(0, rgb);
+            int[] row = new int[thumbnailWidth];
+            for (int y = 0; y < thumbnailHeight; y++) {
+                for (int x = 0; x < thumbnailWidth; x++) {
+                    int i = (y * thumbnailWidth + x) * 3;
+                    row[x] = (rgb[i] & 0xFF) << 16 | (rgb[i + 1] & 0xFF) << 8 | (rgb[i + 2] & 0xFF);
+                }
+                image.getRaster().setDataElements(0, y, thumbnailWidth, 1, row);
+            }
+            return image;
+        }
+    }
+
+    /** A file found by the walk. */
+    private record Found(File file, String path, long size, long modified) {
+    }
+
+    /**
+     * Brings the cache of folder up to date and returns its images as a library,
+     * ordered by path. Files that cannot be read are left out of both.
+     */
+    public static TileLibrary scan(File folder) throws IOException {
+        if (!folder.isDirectory()) {
+            throw new IOException("Not a folder: " + folder);
+        }
+        File cacheFile = new File(folder, FILE_NAME);
+        Map<String, Entry> cached = read(cacheFile);
+        List<Found> found = ForkJoinPool.commonPool().invoke(new Walk(folder, folder));
+
+        AtomicInteger decoded = new AtomicInteger();
+        List<Entry> entries = found.parallelStream().map(f -> {
+            Entry entry = cached.get(f.path());
+            if (entry != null && entry.size() == f.size() && entry.modified() == f.modified()) {
+                return entry;
+            }
+            decoded.incrementAndGet();
+            return compute(f);
+        }).toList();
+
+        if (decoded.get() > 0 || entries.size() != cached.size()) {
+            // Reused thumbnails are slices of the mapped cache, which some platforms will not replace while mapped
+            entries = entries.stream().map(entry -> entry == null ? null : entry.detached()).toList();
+            write(cacheFile, entries.stream().filter(Objects::nonNull).toList());
+        }
+
+        List<TileLibrary.Tile> tiles = new ArrayList<>();
+        List<Entry> images = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry != null && entry.isImage()) {
+                tiles.add(new TileLibrary.Tile(found.get(i).file(), entry.width(), entry.height(), entry.features()));
+                images.add(entry);
+            }
+        }
+        return new TileLibrary(tiles, id -> images.get(id).thumbnailImage());
+    }
+
+    /** The entry for a new or changed file, or null if reading it failed. */
+    private static Entry compute(Found found) {
+        SourceImage source;
+        try {
+            source = ImageLoader.decodeCovering(found.file(), THUMBNAIL_SIZE);
+        } catch (IOException | RuntimeException ex) {
+            if (!(ex instanceof ImageLoader.UnsupportedFormatException)) return null;
+            return new Entry(found.path(), found.size(), found.modified(), 0, 0,
+                    new float[TileLibrary.FEATURE_LENGTH], 0, 0, ByteBuffer.allocate(0));
+        }
+        BufferedImage proxy = source.getProxy();
+        double fit = Math.min(1, Math.min((double) THUMBNAIL_SIZE / Math.min(proxy.getWidth(), proxy.getHeight()),
+                (double) THUMBNAIL_MAX_LENGTH / Math.max(proxy.getWidth(), proxy.getHeight())));
+        int w = Math.max(1, (int) Math.round(proxy.getWidth() * fit));
+        int h = Math.max(1, (int) Math.round(proxy.getHeight() * fit));
+        int[] pixels = Resampler.resize(proxy, w, h, Resampler.Kernel.BOX).getRGB(0, 0, w, h, null, 0, w);
+        byte[] rgb = new byte[w * h * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            rgb[i * 3] = (byte) (pixels[i] >> 16);
+            rgb[i * 3 + 1] = (byte) (pixels[i] >> 8);
+            rgb[i * 3 + 2] = (byte) pixels[i];
+        }
+        return new Entry(found.path(), found.size(), found.modified(), source.getWidth(), source.getHeight(),
+                TileLibrary.features(proxy), w, h, ByteBuffer.wrap(rgb));
+    }
+
+    /** Entries by path, or none if the file is missing or not a readable cache. */
+    static Map<String, Entry> read(File file) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!file.isFile()) return entries;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length()];
+            mapped.get(magic);
+            if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII)) || mapped.getInt() != VERSION
+                    || mapped.getInt() != THUMBNAIL_SIZE) {
+                return entries;
+            }
+            int count = mapped.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[mapped.getShort() & 0xFFFF];
+                mapped.get(path);
+                long size = mapped.getLong();
+                long modified = mapped.getLong();
+                int width = mapped.getInt();
+                int height = mapped.getInt();
+                float[] features = new float[TileLibrary.FEATURE_LENGTH];
+                for (int f = 0; f < features.length; f++) {
+                    features[f] = mapped.getFloat();
+                }
+                int thumbnailWidth = mapped.getShort();
+                int thumbnailHeight = mapped.getShort();
+                int offset = mapped.getInt();
+                Entry entry = new Entry(new String(path, StandardCharsets.UTF_8), size, modified, width, height, features,
+                        thumbnailWidth, thumbnailHeight, mapped.slice(offset, thumbnailWidth * thumbnailHeight * 3));
+                entries.put(entry.path(), entry);
+            }
+        } catch (IOException | RuntimeException ex) {
+            // A damaged cache is rebuilt from the images
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /** Writes entries to a temporary file and moves it over the cache, so readers never see half a file. */
+    static void write(File file, List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(bytes);
+        index.writeBytes(MAGIC);
+        index.writeInt(VERSION);
+        index.writeInt(THUMBNAIL_SIZE);
+        index.writeInt(entries.size());
+        int indexSize = bytes.size();
+        for (Entry entry : entries) {
+            indexSize += 2 + entry.path().getBytes(StandardCharsets.UTF_8).length
+                    + 8 + 8 + 4 + 4 + 4 * TileLibrary.FEATURE_LENGTH + 2 + 2 + 4;
+        }
+        int offset = indexSize;
+        for (Entry entry : entries) {
+            byte[] path = entry.path().getBytes(StandardCharsets.UTF_8);
+            index.writeShort(path.length);
+            index.write(path);
+            index.writeLong(entry.size());
+            index.writeLong(entry.modified());
+            index.writeInt(entry.width());
+            index.writeInt(entry.height());
+            for (float f : entry.features()) {
+                index.writeFloat(f);
+            }
+            index.writeShort(entry.thumbnailWidth());
+            index.writeShort(entry.thumbnailHeight());
+            index.writeInt(offset);
+            offset += entry.thumbnail().capacity();
+        }
+        index.flush();
+
+        File temp = File.createTempFile(FILE_NAME, ".tmp", file.getParentFile());
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                bytes.writeTo(out);
+                byte[] thumbnail = new byte[0];
+                for (Entry entry : entries) {
+                    int length = entry.thumbnail().capacity();
+                    if (thumbnail.length < length) thumbnail = new byte[length];
+                    entry.thumbnail().get(0, thumbnail, 0, length);
+                    out.write(thumbnail, 0, length);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /** Lists the files under a folder, one task per subfolder. Hidden files and folders are skipped. */
+    private static class Walk extends RecursiveTask<List<Found>> {
+        private final File root;
+        private final File folder;
+
+        Walk(File root, File folder) {
+            this.root = root;
+            this.folder = folder;
+        }
+
+        @Override
+        protected List<Found> compute() {
+            File[] children = folder.listFiles(child -> !child.getName().startsWith("."));
+            List<Found> found = new ArrayList<>();
+            if (children == null) return found;
+            Arrays.sort(children);
+            List<Walk> subfolders = new ArrayList<>();
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    Walk walk = new Walk(root, child);
+                    walk.fork();
+                    subfolders.add(walk);
+                } else if (child.isFile()) {
+                    String path = root.toPath().relativize(child.toPath()).toString().replace(File.separatorChar, '/');
+                    found.add(new Found(child, path, child.length(), child.lastModified()));
+                }
+            }
+            for (Walk walk : subfolders) {
+                found.addAll(walk.join());
+            }
+            return found;
+        }
+    }
+}
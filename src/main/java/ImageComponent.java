@@ -3,20 +3,70 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 
 public class ImageComponent extends JComponent {
+    // Original source. Edits never modify or copy its pixels, they only change sourceRegion.
+    protected SourceImage source;
+    // Region of the source shown, in full-resolution source pixels
+    protected Rectangle sourceRegion;
+    // Zero-copy view of sourceRegion within the source's display proxy, made on first use by getImage()
     protected BufferedImage image;
-    public BufferedImage getImage() { return image; }
+    public BufferedImage getImage() {
+        if (image == null && source != null) {
+            BufferedImage proxy = source.getProxy();
+            Rectangle proxyRegion = source.toProxyRegion(sourceRegion);
+            if (proxyRegion.x == 0 && proxyRegion.y == 0 && proxyRegion.width == proxy.getWidth() && proxyRegion.height == proxy.getHeight()) {
+                image = proxy;
+            } else {
+                image = proxy.getSubimage(proxyRegion.x, proxyRegion.y, proxyRegion.width, proxyRegion.height);
+            }
+        }
+        return image;
+    }
+    public SourceImage getSourceImage() { return source; }
+    // Full-resolution pixels; decodes them from disk if only a proxy is held
+    public BufferedImage getSource() { return source.getFull(); }
+    public Rectangle getSourceRegion() { return new Rectangle(sourceRegion); }
     protected Rectangle imageBounds;
+    // Returns a copy; changes must go through the setters so the canvas index stays in sync
     public Rectangle getImageBounds(){
-        return imageBounds;
+        return new Rectangle(imageBounds);
     }
     public Point getImageLocation(){ return imageBounds.getLocation(); }
     public Dimension getImageDimension(){ return imageBounds.getSize(); }
-    public void setImageDimension(Dimension d){ imageBounds.setSize(d); }
-    public void setImageBounds(Rectangle b){ imageBounds = b; }
-    public void setImageLocation(Point p){ imageBounds.setLocation(p); }
+    public void setImageDimension(Dimension d){ imageBounds.setSize(d); imageBoundsChanged(); }
+    public void setImageBounds(Rectangle b){ imageBounds = new Rectangle(b); imageBoundsChanged(); }
+    public void setImageLocation(Point p){ imageBounds.setLocation(p); imageBoundsChanged(); }
+
+    protected void imageBoundsChanged() {
+    }
 
     public ImageComponent(BufferedImage image){
-        this.image = image;
+        this(SourceImage.of(image), new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+    }
+
+    public ImageComponent(SourceImage source, Rectangle sourceRegion){
+        this.source = source;
+        setSourceRegion(sourceRegion);
+    }
+
+    // Placeholder for an image that is still being decoded; only its size is known
+    public ImageComponent(Dimension sourceSize){
+        this.sourceRegion = new Rectangle(0, 0, sourceSize.width, sourceSize.height);
+    }
+
+    public boolean isLoaded() { return source != null; }
+
+    public void setSource(SourceImage source) {
+        this.source = source;
+        setSourceRegion(sourceRegion);
+    }
+
+    protected void setSourceRegion(Rectangle region) {
+        sourceRegion = new Rectangle(region);
+        image = null;
+    }
+
+    public MosaicTile toMosaicTile() {
+        return new MosaicTile(source, sourceRegion, imageBounds);
     }
 
     public void setUnscaledLocationFromScaledMove(Point scaledStart, Point scaledEnd) {
@@ -0,0 +1,192 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Decodes image files off the Swing event thread on a bounded pool, so many files
+ * dropped at once decode in parallel without starving the UI. Images decoded for
+ * display are converted there to the screen's compatible layout, since Java2D
+ * draws decoder layouts such as 3BYTE_BGR through slow generic loops.
+ */
+public class ImageLoader {
+    private static final ExecutorService DECODER = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "image-decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // 1x1 compatible images of the default screen, by Transparency constant
+    private static final BufferedImage[] COMPATIBLE = new BufferedImage[Transparency.TRANSLUCENT + 1];
+
+    static {
+        GraphicsConfiguration screen = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        for (int transparency : new int[]{Transparency.OPAQUE, Transparency.BITMASK, Transparency.TRANSLUCENT}) {
+            COMPATIBLE[transparency] = screen != null ? screen.createCompatibleImage(1, 1, transparency)
+                    : new BufferedImage(1, 1, transparency == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+
+    /** Thrown when no reader recognizes the file, as opposed to a read that failed. */
+    public static class UnsupportedFormatException extends IOException {
+        UnsupportedFormatException(File file) {
+            super("Unsupported image format: " + file);
+        }
+    }
+
+    private interface ReaderAction<T> {
+        T apply(ImageReader reader) throws IOException;
+    }
+
+    private static <T> T withReader(File file, ReaderAction<T> action) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new UnsupportedFormatException(file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return action.apply(reader);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Reads only the header of the file to get its full-resolution size. */
+    public static Dimension readDimensions(File file) throws IOException {
+        return withReader(file, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+    }
+
+    /**
+     * The image in the layout GraphicsConfiguration.createCompatibleImage gives for
+     * its transparency, so opaque images get a type without alpha. Headless, that is
+     * INT_RGB or INT_ARGB. Images already in that layout are returned as they are.
+     */
+    public static BufferedImage toCompatible(BufferedImage image) {
+        BufferedImage prototype = COMPATIBLE[image.getColorModel().getTransparency()];
+        if (image.getType() != BufferedImage.TYPE_CUSTOM && image.getType() == prototype.getType()) {
+            return image;
+        }
+        ColorModel model = prototype.getColorModel();
+        BufferedImage result = new BufferedImage(model,
+                model.createCompatibleWritableRaster(image.getWidth(), image.getHeight()),
+                model.isAlphaPremultiplied(), null);
+        Graphics2D g = result.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return result;
+    }
+
+    public static BufferedImage decode(File file) throws IOException {
+        MosaicEvents.Decode event = new MosaicEvents.Decode();
+        long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+        event.begin();
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new UnsupportedFormatException(file);
+        }
+        commit(event, allocated, file, image.getWidth(), image.getHeight(), image);
+        return image;
+    }
+
+    /**
+     * Decodes the file for interactive use. With proxy decoding enabled, the reader
+     * skips source rows and columns so the result is no larger than
+     * AppDefaults.PROXY_MAX_DIMENSION on its longer side, while the full-resolution
+     * size comes from the header.
+     */
+    public static SourceImage decodeSource(File file) throws IOException {
+        if (!AppDefaults.PROXY_DECODE) {
+            BufferedImage image = toCompatible(decode(file));
+            return new SourceImage(file, image.getWidth(), image.getHeight(), image);
+        }
+        return decodeSource(file, AppDefaults.PROXY_MAX_DIMENSION);
+    }
+
+    /** Decodes a proxy subsampled to at most maxDimension on its longer side, whatever the proxy settings. */
+    public static SourceImage decodeSource(File file, int maxDimension) throws IOException {
+        return decodeSubsampled(file, (width, height) -> {
+            int longest = Math.max(width, height);
+            return Math.max(1, (longest + maxDimension - 1) / maxDimension);
+        });
+    }
+
+    /**
+     * Decodes a proxy subsampled as far as possible while its shorter side stays at
+     * least minDimension, or at full resolution if the file is smaller than that.
+     */
+    public static SourceImage decodeCovering(File file, int minDimension) throws IOException {
+        return decodeSubsampled(file, (width, height) -> Math.max(1, Math.min(width, height) / minDimension));
+    }
+
+    // stepFor gives the subsampling step for the full-resolution width and height
+    private static SourceImage decodeSubsampled(File file, IntBinaryOperator stepFor) throws IOException {
+        MosaicEvents.Decode event = new MosaicEvents.Decode();
+        long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+        event.begin();
+        SourceImage source = withReader(file, reader -> {
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int step = stepFor.applyAsInt(width, height);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(step, step, 0, 0);
+            return new SourceImage(file, width, height, toCompatible(reader.read(0, param)));
+        });
+        commit(event, allocated, file, source.getWidth(), source.getHeight(), source.getProxy());
+        return source;
+    }
+
+    private static void commit(MosaicEvents.Decode event, long allocatedBefore, File file, int sourceWidth, int sourceHeight,
+                               BufferedImage decoded) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.file = file.getPath();
+        event.sourceWidth = sourceWidth;
+        event.sourceHeight = sourceHeight;
+        event.width = decoded.getWidth();
+        event.height = decoded.getHeight();
+        event.pixelType = MosaicEvents.pixelType(decoded);
+        event.bytes = MosaicEvents.rasterBytes(decoded);
+        event.allocatedBytes = MosaicEvents.allocatedBytes() - allocatedBefore;
+        event.commit();
+    }
+
+    public static CompletableFuture<SourceImage> decodeAsync(File file) {
+        return submit(file, ImageLoader::decodeSource);
+    }
+
+    private interface Decoder {
+        SourceImage decode(File file) throws IOException;
+    }
+
+    private static CompletableFuture<SourceImage> submit(File file, Decoder decoder) {
+        CompletableFuture<SourceImage> result = new CompletableFuture<>();
+        DECODER.execute(() -> {
+            try {
+                result.complete(decoder.decode(file));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+}
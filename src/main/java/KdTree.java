@@ -0,0 +1,170 @@
+/**
+ * Static k-d tree over points of equal dimension for k-nearest-neighbour queries
+ * by Euclidean distance. The tree is implicit: the point ids are reordered so the
+ * median of every range is its node, split on the dimension with the widest spread
+ * in that range. Building takes O(n log n); queries may run concurrently.
+ *
+ * Pruning uses the full distance from the query to each cell rather than only to
+ * the splitting plane, which matters with many dimensions.
+ */
+public class KdTree {
+    private final float[][] points;
+    private final int[] order;
+    private final byte[] splitDimension;
+
+    public KdTree(float[][] points) {
+        this.points = points;
+        this.order = new int[points.length];
+        this.splitDimension = new byte[points.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        build(0, order.length);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Finds up to ids.length nearest points to query, closest first, writing their
+     * ids and squared distances. Returns how many were found.
+     */
+    public int nearest(float[] query, int[] ids, float[] distances) {
+        return nearest(query, ids, distances, 0);
+    }
+
+    /**
+     * Approximate {@link #nearest(float[], int[], float[])}: parts of the tree that
+     * cannot hold a point more than 1 + epsilon times closer than the current
+     * candidates are skipped, which is far faster in many dimensions.
+     */
+    public int nearest(float[] query, int[] ids, float[] distances, float epsilon) {
+        if (points.length == 0) return 0;
+        Search search = new Search(query, ids, distances, (1 + epsilon) * (1 + epsilon));
+        search.visit(0, order.length, 0);
+        return search.count;
+    }
+
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            int dimension = widestDimension(lo, hi);
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, dimension);
+            splitDimension[mid] = (byte) dimension;
+            build(lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    private int widestDimension(int lo, int hi) {
+        int dimensions = points[order[lo]].length;
+        int widest = 0;
+        float widestSpread = -1;
+        for (int d = 0; d < dimensions; d++) {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = lo; i < hi; i++) {
+                float v = points[order[i]][d];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = d;
+            }
+        }
+        return widest;
+    }
+
+    /** Quickselect: moves the k-th smallest of order[lo..hi] by dimension into position k. */
+    private void select(int lo, int hi, int k, int dimension) {
+        while (lo < hi) {
+            float pivot = points[order[(lo + hi) >>> 1]][dimension];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (points[order[i]][dimension] < pivot) i++;
+                while (points[order[j]][dimension] > pivot) j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private class Search {
+        private final float[] query;
+        private final int[] ids;
+        private final float[] distances;
+        // Per dimension, how far the query lies outside the cell being visited
+        private final float[] offsets;
+        // Squared 1 + epsilon, the factor by which a cell must be able to beat the candidates
+        private final float slack;
+        private int count;
+
+        Search(float[] query, int[] ids, float[] distances, float slack) {
+            this.query = query;
+            this.ids = ids;
+            this.distances = distances;
+            this.slack = slack;
+            this.offsets = new float[query.length];
+        }
+
+        /** Visits order[lo, hi), whose cell is cellDistance (squared) or more away from the query. */
+        void visit(int lo, int hi, float cellDistance) {
+            if (lo >= hi) return;
+            int mid = (lo + hi) >>> 1;
+            int id = order[mid];
+            offer(id, distance(points[id]));
+            if (hi - lo == 1) return;
+            int dimension = splitDimension[mid];
+            float diff = query[dimension] - points[id][dimension];
+            boolean left = diff < 0;
+            visit(left ? lo : mid + 1, left ? mid : hi, cellDistance);
+            // The far side is at least |diff| away on the split axis, which replaces that axis' share of the bound
+            float previous = offsets[dimension];
+            float farDistance = cellDistance - previous * previous + diff * diff;
+            if (farDistance * slack < worst()) {
+                offsets[dimension] = diff;
+                visit(left ? mid + 1 : lo, left ? hi : mid, farDistance);
+                offsets[dimension] = previous;
+            }
+        }
+
+        private float worst() {
+            return count < ids.length ? Float.MAX_VALUE : distances[count - 1];
+        }
+
+        private void offer(int id, float distance) {
+            if (distance >= worst()) return;
+            int i = Math.min(count, ids.length - 1);
+            while (i > 0 && distances[i - 1] > distance) {
+                ids[i] = ids[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+            if (count < ids.length) count++;
+        }
+
+        private float distance(float[] point) {
+            float sum = 0;
+            for (int d = 0; d < query.length; d++) {
+                float diff = query[d] - point[d];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link PixelStore} backed by a memory-mapped temp file, so decoded pixels stay
+ * off the Java heap and the OS page cache decides what is resident. A single
+ * mapping is limited to 2 GB, so large images are split into segments of whole rows.
+ *
+ * The file is deleted as soon as it is mapped. Where the OS allows that, its space
+ * is freed once the store is garbage collected, and nothing is left behind if the
+ * JVM dies; elsewhere it is deleted on exit. {@link #map} instead wraps pixels that
+ * are already in a file, such as a saved project, where they are.
+ */
+public class MappedPixelStore implements PixelStore {
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private final int width;
+    private final int height;
+    private final int rowsPerSegment;
+    private final IntBuffer[] segments;
+
+    private MappedPixelStore(int width, int height, int rowsPerSegment, IntBuffer[] segments) {
+        this.width = width;
+        this.height = height;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+    }
+
+    public static MappedPixelStore copyOf(BufferedImage image) throws IOException {
+        return copyOf(new PixelRows(image), MAX_SEGMENT_BYTES);
+    }
+
+    /** Copies every pixel of source into a new temp file, mapping at most maxSegmentBytes at a time. */
+    public static MappedPixelStore copyOf(PixelStore source, long maxSegmentBytes) throws IOException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        long rowBytes = (long) width * Integer.BYTES;
+        int rowsPerSegment = (int) Math.max(1, Math.min(height, maxSegmentBytes / rowBytes));
+        int segmentCount = (height + rowsPerSegment - 1) / rowsPerSegment;
+        IntBuffer[] segments = new IntBuffer[segmentCount];
+
+        File file = File.createTempFile("mosaic-raster", ".argb");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            int[] row = new int[width];
+            for (int s = 0; s < segmentCount; s++) {
+                int firstRow = s * rowsPerSegment;
+                int rows = Math.min(rowsPerSegment, height - firstRow);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                        firstRow * rowBytes, rows * rowBytes);
+                IntBuffer ints = mapped.order(ByteOrder.nativeOrder()).asIntBuffer();
+                for (int y = 0; y < rows; y++) {
+                    source.read(firstRow + y, row);
+                    ints.put(y * width, row);
+                }
+                segments[s] = ints;
+            }
+        } finally {
+            // The mappings stay valid after the name is gone
+            if (!file.delete()) file.deleteOnExit();
+        }
+        return new MappedPixelStore(width, height, rowsPerSegment, segments);
+    }
+
+    /** Maps the width x height ARGB ints stored row by row at position in channel, read-only and without copying. */
+    public static MappedPixelStore map(FileChannel channel, long position, int width, int height, ByteOrder order)
+            throws IOException {
+        long rowBytes = (long) width * Integer.BYTES;
+        int rowsPerSegment = (int) Math.max(1, Math.min(height, MAX_SEGMENT_BYTES / rowBytes));
+        int segmentCount = (height + rowsPerSegment - 1) / rowsPerSegment;
+        IntBuffer[] segments = new IntBuffer[segmentCount];
+        for (int s = 0; s < segmentCount; s++) {
+            int firstRow = s * rowsPerSegment;
+            int rows = Math.min(rowsPerSegment, height - firstRow);
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position + firstRow * rowBytes, rows * rowBytes)
+                    .order(order).asIntBuffer();
+        }
+        return new MappedPixelStore(width, height, rowsPerSegment, segments);
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void read(int y, int x, int count, int[] dst) {
+        IntBuffer segment = segments[y / rowsPerSegment];
+        segment.get((y % rowsPerSegment) * width + x, dst, 0, count);
+    }
+}
@@ -0,0 +1,129 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Power-of-two chain of pre-downscaled copies of an image used for painting it
+ * small on screen. Level 0 is the source itself, every further level halves both
+ * dimensions of the previous one. Levels are built on a background executor and
+ * are only softly reachable, so the garbage collector drops them when memory is
+ * tight and they are rebuilt on the next request.
+ */
+public class MipmapPyramid {
+    private static final ExecutorService BUILDER = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "mipmap-builder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    private final BufferedImage source;
+    private final Executor executor;
+    private final Runnable onLevelReady;
+    private final AtomicReferenceArray<SoftReference<BufferedImage>> levels;
+    private final AtomicBoolean building = new AtomicBoolean(false);
+
+    public MipmapPyramid(BufferedImage source, Runnable onLevelReady) {
+        this(source, BUILDER, onLevelReady);
+    }
+
+    public MipmapPyramid(BufferedImage source, Executor executor, Runnable onLevelReady) {
+        this.source = source;
+        this.executor = executor;
+        this.onLevelReady = onLevelReady;
+        int count = 1;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        while (w > 1 && h > 1) {
+            w /= 2;
+            h /= 2;
+            count++;
+        }
+        this.levels = new AtomicReferenceArray<>(count);
+    }
+
+    public BufferedImage getSource() {
+        return source;
+    }
+
+    public int getLevelCount() {
+        return levels.length();
+    }
+
+    public static Dimension levelSize(BufferedImage source, int level) {
+        return new Dimension(Math.max(1, source.getWidth() >> level), Math.max(1, source.getHeight() >> level));
+    }
+
+    /** Smallest level that is still at least as large as width x height on both axes. */
+    public int levelFor(int width, int height) {
+        int level = 0;
+        while (level + 1 < levels.length()) {
+            Dimension next = levelSize(source, level + 1);
+            if (next.width < width || next.height < height) break;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns the best image that is already available for painting at the given
+     * size. If the ideal level is missing, a build is scheduled and the closest
+     * finer level (at worst the source) is returned in the meantime.
+     */
+    public BufferedImage imageFor(int width, int height) {
+        int wanted = levelFor(width, height);
+        for (int level = wanted; level > 0; level--) {
+            BufferedImage image = peek(level);
+            if (image != null) {
+                if (level != wanted) scheduleBuild(wanted);
+                return image;
+            }
+        }
+        if (wanted > 0) scheduleBuild(wanted);
+        return source;
+    }
+
+    private BufferedImage peek(int level) {
+        if (level == 0) return source;
+        SoftReference<BufferedImage> ref = levels.get(level);
+        return ref == null ? null : ref.get();
+    }
+
+    private void scheduleBuild(int level) {
+        if (!building.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            try {
+                buildLevel(level);
+            } finally {
+                building.set(false);
+            }
+            if (onLevelReady != null) onLevelReady.run();
+        });
+    }
+
+    /** Builds (or returns the cached) level, halving from the closest available finer level. */
+    public BufferedImage buildLevel(int level) {
+        BufferedImage image = peek(level);
+        if (image != null) return image;
+        int start = level - 1;
+        BufferedImage current = peek(start);
+        while (current == null) {
+            current = peek(--start);
+        }
+        for (int l = start + 1; l <= level; l++) {
+            current = halve(current, levelSize(source, l));
+            levels.set(l, new SoftReference<>(current));
+        }
+        return current;
+    }
+
+    private static BufferedImage halve(BufferedImage image, Dimension size) {
+        return Resampler.resize(image, size.width, size.height, AppDefaults.RESAMPLE_KERNEL);
+    }
+}
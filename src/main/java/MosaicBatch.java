@@ -0,0 +1,99 @@
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a {@link MosaicLayout} to a PNG from the command line, without creating
+ * any windows:
+ * <pre>java MosaicBatch layout.properties mosaic.png|mosaic.dzi [--stream]</pre>
+ * Only the headers of the sources are read up front. Each source is decoded when
+ * the first band that shows it is composited, in parallel with the others, and
+ * dropped once the bands are past it, so a streamed render holds the sources of
+ * a few bands rather than all of them. Large mosaics, or any with --stream, are
+ * encoded band by band. An output ending in .dzi is written as a Deep Zoom tile
+ * pyramid, see {@link DeepZoomWriter}.
+ */
+public class MosaicBatch {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        List<String> paths = new ArrayList<>();
+        boolean streaming = false;
+        for (String arg : args) {
+            if (arg.equals("--stream")) {
+                streaming = true;
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.size() != 2) {
+            System.err.println("Usage: MosaicBatch <layout.properties> <output.png|output.dzi> [--stream]");
+            System.exit(2);
+        }
+        try {
+            render(MosaicLayout.read(new File(paths.get(0))), new File(paths.get(1)), streaming);
+        } catch (Exception ex) {
+            System.err.println("Error rendering mosaic: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Reads the size of every distinct source file and builds the renderer for the layout; nothing is decoded yet. */
+    public static MosaicRenderer createRenderer(MosaicLayout layout) throws IOException {
+        if (layout.getEntries().isEmpty()) {
+            throw new IOException("Layout has no tiles");
+        }
+        Map<File, SourceImage> sources = new HashMap<>();
+        List<MosaicTile> tiles = new ArrayList<>(layout.getEntries().size());
+        for (MosaicLayout.Entry entry : layout.getEntries()) {
+            SourceImage source = sources.get(entry.file());
+            if (source == null) {
+                source = SourceImage.ofFile(entry.file(), ImageLoader.readDimensions(entry.file()));
+                sources.put(entry.file(), source);
+            }
+            try {
+                tiles.add(entry.toTile(source));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(ex.getMessage());
+            }
+        }
+        return new MosaicRenderer(tiles).setCompositor(new TiledCompositor());
+    }
+
+    public static void render(MosaicLayout layout, File output, boolean streaming) throws IOException {
+        MosaicEvents.Export event = new MosaicEvents.Export();
+        long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+        event.begin();
+        MosaicRenderer renderer = createRenderer(layout);
+        boolean deepZoom = ExportQueue.formatOf(output).equals(ExportQueue.DEEP_ZOOM);
+        streaming |= deepZoom || renderer.getPixelCount() > AppDefaults.STREAMING_EXPORT_PIXEL_THRESHOLD;
+        try {
+            if (deepZoom) {
+                DeepZoomWriter.write(renderer, output, AppDefaults.DEEP_ZOOM_TILE_SIZE, AppDefaults.DEEP_ZOOM_OVERLAP,
+                        AppDefaults.DEEP_ZOOM_FORMAT, null);
+            } else if (streaming) {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+                    renderer.writePng(out, AppDefaults.EXPORT_BAND_HEIGHT);
+                }
+            } else {
+                ImageIO.write(renderer.render(), "png", output);
+            }
+        } catch (UncheckedIOException ex) {
+            // A source that could not be decoded while compositing
+            throw ex.getCause();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = output.getPath();
+            event.width = renderer.getBounds().width;
+            event.height = renderer.getBounds().height;
+            event.tileCount = renderer.getTiles().size();
+            event.streaming = streaming;
+            event.bytes = output.length();
+            event.allocatedBytes = MosaicEvents.allocatedBytes() - allocated;
+            event.commit();
+        }
+    }
+}
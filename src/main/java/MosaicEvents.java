@@ -0,0 +1,163 @@
+import jdk.jfr.*;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Flight Recorder events for the expensive phases of editing and exporting a
+ * mosaic. Call sites only gather their fields when the event is enabled, so with
+ * no recording running the cost is a flag check.
+ * <pre>java -XX:StartFlightRecording=filename=mosaic.jfr MosaicMaker</pre>
+ */
+public class MosaicEvents {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    @Name("mosaic.Decode")
+    @Label("Image Decode")
+    @Category("Mosaic")
+    @Description("Reading and decoding one source file")
+    public static class Decode extends Event {
+        @Label("File")
+        public String file;
+        @Label("Source Width")
+        public int sourceWidth;
+        @Label("Source Height")
+        public int sourceHeight;
+        @Label("Decoded Width")
+        public int width;
+        @Label("Decoded Height")
+        public int height;
+        @Label("Pixel Type")
+        public String pixelType;
+        @Label("Raster Size")
+        @DataAmount
+        public long bytes;
+        @Label("Allocated")
+        @DataAmount
+        public long allocatedBytes;
+    }
+
+    @Name("mosaic.Resample")
+    @Label("Resample")
+    @Category("Mosaic")
+    @Description("Resizing one image to new dimensions")
+    public static class Resample extends Event {
+        @Label("Source Width")
+        public int sourceWidth;
+        @Label("Source Height")
+        public int sourceHeight;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Pixel Type")
+        public String pixelType;
+        @Label("Raster Size")
+        @DataAmount
+        public long bytes;
+        @Label("Allocated")
+        @DataAmount
+        public long allocatedBytes;
+    }
+
+    @Name("mosaic.Composite")
+    @Label("Composite")
+    @Category("Mosaic")
+    @Description("Compositing tiles into one region of the mosaic")
+    public static class Composite extends Event {
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Tiles")
+        public int tileCount;
+        @Label("Parallel")
+        public boolean parallel;
+        @Label("Raster Size")
+        @DataAmount
+        public long bytes;
+        @Label("Allocated")
+        @DataAmount
+        public long allocatedBytes;
+    }
+
+    @Name("mosaic.Repaint")
+    @Label("Canvas Repaint")
+    @Category("Mosaic")
+    @Description("One paint of the editing canvas")
+    public static class Repaint extends Event {
+        @Label("Clip Width")
+        public int width;
+        @Label("Clip Height")
+        public int height;
+        @Label("Images")
+        public int tileCount;
+        @Label("Scale")
+        public double scale;
+        @Label("Scene Mode")
+        public boolean sceneMode;
+        @Label("Allocated")
+        @DataAmount
+        public long allocatedBytes;
+    }
+
+    @Name("mosaic.Export")
+    @Label("Export")
+    @Category("Mosaic")
+    @Description("Rendering and encoding the whole mosaic to a file")
+    public static class Export extends Event {
+        @Label("File")
+        public String file;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Tiles")
+        public int tileCount;
+        @Label("Streaming")
+        public boolean streaming;
+        @Label("File Size")
+        @DataAmount
+        public long bytes;
+        @Label("Allocated")
+        @DataAmount
+        public long allocatedBytes;
+    }
+
+    /** Bytes allocated so far by the calling thread, or 0 where the JVM cannot tell. */
+    public static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public static String pixelType(BufferedImage image) {
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB -> "INT_RGB";
+            case BufferedImage.TYPE_INT_ARGB -> "INT_ARGB";
+            case BufferedImage.TYPE_INT_ARGB_PRE -> "INT_ARGB_PRE";
+            case BufferedImage.TYPE_INT_BGR -> "INT_BGR";
+            case BufferedImage.TYPE_3BYTE_BGR -> "3BYTE_BGR";
+            case BufferedImage.TYPE_4BYTE_ABGR -> "4BYTE_ABGR";
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE -> "4BYTE_ABGR_PRE";
+            case BufferedImage.TYPE_BYTE_GRAY -> "BYTE_GRAY";
+            case BufferedImage.TYPE_USHORT_GRAY -> "USHORT_GRAY";
+            case BufferedImage.TYPE_BYTE_INDEXED -> "BYTE_INDEXED";
+            case BufferedImage.TYPE_BYTE_BINARY -> "BYTE_BINARY";
+            default -> "CUSTOM";
+        };
+    }
+
+    /** Size of the image's backing data in bytes. */
+    public static long rasterBytes(BufferedImage image) {
+        int bits = image.getColorModel().getPixelSize();
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, (bits + 7) / 8);
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+}
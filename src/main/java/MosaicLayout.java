@@ -0,0 +1,143 @@
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Arrangement of source files on a mosaic, read from a properties file so mosaics
+ * can be rendered without the editor. Each image is a group of tile.N keys:
+ * <pre>
+ * tile.0.file=photos/beach.jpg   relative to the layout file
+ * tile.0.x=0                     unscaled position
+ * tile.0.y=0
+ * tile.0.crop=100,50,800,600     optional, region of the source in full-resolution pixels
+ * tile.0.scale=0.5               optional, or tile.0.width and tile.0.height for an exact size
+ * tile.0.z=2                     optional, higher is further front; defaults to N
+ * </pre>
+ */
+public class MosaicLayout {
+    private static final Pattern FILE_KEY = Pattern.compile("tile\\.(\\d+)\\.file");
+
+    /**
+     * One image. A null crop shows the whole source and a null size derives the
+     * bounds from the crop and scale, the way a resize does in the editor.
+     */
+    public record Entry(File file, Point location, Rectangle crop, double scale, Dimension size) {
+        public Entry {
+            location = new Point(location);
+            crop = crop == null ? null : new Rectangle(crop);
+            size = size == null ? null : new Dimension(size);
+        }
+
+        /** Region shown from a source of the given full-resolution size. */
+        public Rectangle regionFor(int sourceWidth, int sourceHeight) {
+            if (crop == null) return new Rectangle(0, 0, sourceWidth, sourceHeight);
+            if (crop.isEmpty() || !new Rectangle(0, 0, sourceWidth, sourceHeight).contains(crop)) {
+                throw new IllegalArgumentException("Crop " + crop.x + "," + crop.y + "," + crop.width + "," + crop.height
+                        + " is outside " + file + " (" + sourceWidth + "x" + sourceHeight + ")");
+            }
+            return new Rectangle(crop);
+        }
+
+        /** Unscaled bounds on the mosaic for a source of the given full-resolution size. */
+        public Rectangle boundsFor(int sourceWidth, int sourceHeight) {
+            if (size != null) return new Rectangle(location, size);
+            Rectangle region = regionFor(sourceWidth, sourceHeight);
+            return new Rectangle(location.x, location.y,
+                    Math.max(1, (int) Math.round(region.width * scale)),
+                    Math.max(1, (int) Math.round(region.height * scale)));
+        }
+
+        /** Same tile an ImageComponent with this region and these bounds would export. */
+        public MosaicTile toTile(SourceImage source) {
+            return new MosaicTile(source, regionFor(source.getWidth(), source.getHeight()),
+                    boundsFor(source.getWidth(), source.getHeight()));
+        }
+    }
+
+    private final List<Entry> entries;
+
+    /** Entries run from the back-most image to the front-most. */
+    public MosaicLayout(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public static MosaicLayout read(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        File base = file.getAbsoluteFile().getParentFile();
+
+        record Indexed(int index, int z, Entry entry) {
+        }
+        List<Indexed> tiles = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            Matcher matcher = FILE_KEY.matcher(key);
+            if (!matcher.matches()) continue;
+            int index = Integer.parseInt(matcher.group(1));
+            String prefix = "tile." + index + ".";
+            File source = new File(properties.getProperty(key).trim());
+            if (!source.isAbsolute()) source = new File(base, source.getPath());
+            Point location = new Point(intValue(properties, prefix + "x", 0), intValue(properties, prefix + "y", 0));
+            Rectangle crop = rectangleValue(properties, prefix + "crop");
+            double scale = doubleValue(properties, prefix + "scale", 1.0);
+            Dimension size = null;
+            if (properties.containsKey(prefix + "width") || properties.containsKey(prefix + "height")) {
+                size = new Dimension(intValue(properties, prefix + "width", -1), intValue(properties, prefix + "height", -1));
+                if (size.width <= 0 || size.height <= 0) {
+                    throw new IOException(prefix + "width and " + prefix + "height must both be positive");
+                }
+            }
+            if (scale <= 0) throw new IOException(prefix + "scale must be positive");
+            tiles.add(new Indexed(index, intValue(properties, prefix + "z", index), new Entry(source, location, crop, scale, size)));
+        }
+        tiles.sort(Comparator.comparingInt(Indexed::z).thenComparingInt(Indexed::index));
+        return new MosaicLayout(tiles.stream().map(Indexed::entry).toList());
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) throws IOException {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IOException(key + " is not an integer: " + value);
+        }
+    }
+
+    private static double doubleValue(Properties properties, String key, double defaultValue) throws IOException {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IOException(key + " is not a number: " + value);
+        }
+    }
+
+    private static Rectangle rectangleValue(Properties properties, String key) throws IOException {
+        String value = properties.getProperty(key);
+        if (value == null) return null;
+        String[] parts = value.split(",");
+        if (parts.length != 4) throw new IOException(key + " must be x,y,width,height: " + value);
+        try {
+            return new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+        } catch (NumberFormatException ex) {
+            throw new IOException(key + " must be x,y,width,height: " + value);
+        }
+    }
+}
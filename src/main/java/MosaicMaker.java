@@ -3,13 +3,20 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.awt.datatransfer.DataFlavor;
 
 public class MosaicMaker {
     private JFrame frame;
     private ScaledCanvas canvas;
+    private JScrollPane scrollPane;
     private JLabel coordLabel;
+    private JLabel exportLabel;
+    private JButton cancelExportButton;
+    private ExportQueue exportQueue;
     private JPanel bottomBar;
     private JMenuBar topBar;
     public static void main(String[] args) {
@@ -38,9 +45,7 @@ public class MosaicMaker {
                     currentScale /= zoomFactor;
                 }
 
-                canvas.setScale(currentScale);
-                canvas.updateChildrenBounds();
-                canvas.repaint();
+                canvas.zoomAt(currentScale, e.getPoint());
             }
         });
 
@@ -54,16 +59,16 @@ public class MosaicMaker {
             public void actionPerformed(ActionEvent e) {
                 ScaledComponent selected = canvas.getSelectedComponent();
                 if (selected != null) {
-                    canvas.remove(selected);
-                    canvas.selectComponent(null);
-                    canvas.repaint();
+                    canvas.deleteComponent(selected);
                 }
             }
         });
 
         canvas.setLayout(null);
 
-        frame.add(canvas, BorderLayout.CENTER);
+        scrollPane = new JScrollPane(canvas);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        frame.add(scrollPane, BorderLayout.CENTER);
 
         canvas.addMouseMotionListener(new MouseMotionAdapter() {
             public void mouseMoved(MouseEvent e) {
@@ -86,9 +91,7 @@ public class MosaicMaker {
                 try {
                     java.util.List<File> files = (java.util.List<File>)
                             support.getTransferable().getTransferData(DataFlavor.javaFileListFlavor);
-                    for (File file : files) {
-                        canvas.addImageToCanvas(file);
-                    }
+                    canvas.addImagesToCanvas(files);
                     return true;
                 } catch (Exception ex) {
                     ex.printStackTrace();
@@ -110,17 +113,45 @@ public class MosaicMaker {
         addItem.addActionListener(e -> selectImageToAdd());
         fileMenu.add(addItem);
 
+        JMenuItem openProjectItem = new JMenuItem("Open Project");
+        openProjectItem.addActionListener(e -> openProject());
+        fileMenu.add(openProjectItem);
+
+        JMenuItem saveProjectItem = new JMenuItem("Save Project");
+        saveProjectItem.addActionListener(e -> saveProject());
+        fileMenu.add(saveProjectItem);
+
+        JMenuItem photomosaicItem = new JMenuItem("Create Photomosaic");
+        photomosaicItem.addActionListener(e -> createPhotomosaic());
+        fileMenu.add(photomosaicItem);
+
         JMenuItem saveItem = new JMenuItem("Save As Image");
         saveItem.addActionListener(e -> saveCanvasAsImage());
         fileMenu.add(saveItem);
 
+        JMenuItem deepZoomItem = new JMenuItem("Save As Deep Zoom");
+        deepZoomItem.addActionListener(e -> saveCanvasAsDeepZoom());
+        fileMenu.add(deepZoomItem);
+
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        JMenuItem undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut));
+        undoItem.addActionListener(e -> canvas.getHistory().undo());
+        undoItem.putClientProperty(ScaledCanvas.SELECTION_INDEPENDENT, true);
+        editMenu.add(undoItem);
+
+        JMenuItem redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut | InputEvent.SHIFT_DOWN_MASK));
+        redoItem.addActionListener(e -> canvas.getHistory().redo());
+        redoItem.putClientProperty(ScaledCanvas.SELECTION_INDEPENDENT, true);
+        editMenu.add(redoItem);
+        editMenu.addSeparator();
+
         JMenuItem deleteItem = new JMenuItem("Delete Image");
         deleteItem.addActionListener(e -> {
             ScaledComponent selected = canvas.getSelectedComponent();
             if (selected != null) {
-                canvas.remove(selected);
-                canvas.selectComponent(null);
-                canvas.repaint();
+                canvas.deleteComponent(selected);
             }
         });
         deleteItem.setEnabled(false); // Initially disabled
@@ -146,6 +177,16 @@ public class MosaicMaker {
         splitVertically.setEnabled(false);
         editMenu.add(splitVertically);
 
+        JMenuItem splitGrid = new JMenuItem("Grid Split...");
+        splitGrid.addActionListener(e -> {
+            ScaledComponent selected = canvas.getSelectedComponent();
+            if (selected != null) {
+                selected.promptGridSplit();
+            }
+        });
+        splitGrid.setEnabled(false);
+        editMenu.add(splitGrid);
+
         JMenuItem cropItem = new JMenuItem("Crop Image");
         cropItem.addActionListener(e -> {
             ScaledComponent selected = canvas.getSelectedComponent();
@@ -156,26 +197,55 @@ public class MosaicMaker {
         cropItem.setEnabled(false);
         editMenu.add(cropItem);
 
+        editMenu.addSeparator();
+        JMenu autoLayoutMenu = new JMenu("Auto Layout");
+        autoLayoutMenu.putClientProperty(ScaledCanvas.SELECTION_INDEPENDENT, true);
+        addAutoLayoutItem(autoLayoutMenu, "Grid", AutoLayout.Mode.GRID);
+        addAutoLayoutItem(autoLayoutMenu, "Justified Rows", AutoLayout.Mode.JUSTIFIED_ROWS);
+        addAutoLayoutItem(autoLayoutMenu, "Bin Packing", AutoLayout.Mode.BIN_PACK);
+        editMenu.add(autoLayoutMenu);
+
         JMenuItem zoomToFitItem = new JMenuItem("Zoom to Fit");
         zoomToFitItem.addActionListener(e -> zoomToFit());
         viewMenu.add(zoomToFitItem);
 
+        JCheckBoxMenuItem sceneModeItem = new JCheckBoxMenuItem("Transform Zoom");
+        sceneModeItem.addActionListener(e -> canvas.setSceneMode(sceneModeItem.isSelected()));
+        viewMenu.add(sceneModeItem);
+
         topBar.add(fileMenu);
         topBar.add(editMenu);
         topBar.add(viewMenu);
         frame.setJMenuBar(topBar);
     }
 
+    private void addAutoLayoutItem(JMenu menu, String label, AutoLayout.Mode mode) {
+        JMenuItem item = new JMenuItem(label);
+        item.addActionListener(e -> {
+            canvas.autoLayout(mode);
+            zoomToFit();
+        });
+        menu.add(item);
+    }
+
     private void addBottomBar() {
         coordLabel = new JLabel("x: 0, y: 0");
+        exportLabel = new JLabel();
+        cancelExportButton = new JButton("Cancel Export");
+        cancelExportButton.setVisible(false);
+        cancelExportButton.addActionListener(e -> showCancelExportMenu());
+        exportQueue = new ExportQueue(job -> SwingUtilities.invokeLater(() -> showExportStatus(job)));
         bottomBar = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottomBar.add(exportLabel);
+        bottomBar.add(cancelExportButton);
         bottomBar.add(coordLabel);
         frame.add(bottomBar, BorderLayout.SOUTH);
     }
 
     private void zoomToFit() {
         Rectangle contentBounds = canvas.getUnscaledImagesBounds();
-        if (contentBounds.x != 0 || contentBounds.y !=0){
+        boolean shifted = contentBounds.x != 0 || contentBounds.y != 0;
+        if (shifted){
             canvas.shiftUnscaledContentBounds(new Point(-1*contentBounds.x, -1*contentBounds.y));
         }
         double wFrame = frame.getContentPane().getWidth();
@@ -184,10 +254,12 @@ public class MosaicMaker {
         double widthScale = wFrame / contentBounds.getWidth();
         double heightScale = hFrame / contentBounds.getHeight();
         double scale = Math.min(widthScale, heightScale);
-        if (scale != 1.0) {
+        // Repaint only when the view actually changes
+        if (shifted || scale != canvas.getScale()) {
             canvas.setScale(scale);
             canvas.updateChildrenBounds();
         }
+        scrollPane.getViewport().setViewPosition(new Point());
     }
     private void saveCanvasAsImage() {
         JFileChooser fileChooser = new JFileChooser();
@@ -196,27 +268,142 @@ public class MosaicMaker {
 
         if (userSelection == JFileChooser.APPROVE_OPTION) {
             File fileToSave = fileChooser.getSelectedFile();
-            String path = fileToSave.getAbsolutePath();
-            if (!path.toLowerCase().endsWith(".png")) {
-                fileToSave = new File(path + ".png");
+            String format = ExportQueue.formatOf(fileToSave);
+            if (!fileToSave.getName().toLowerCase().endsWith("." + format)) {
+                fileToSave = new File(fileToSave.getAbsolutePath() + "." + format);
             }
+            String size = JOptionPane.showInputDialog(frame, "Size (%):", 100);
+            if (size == null) return;
             try {
-                BufferedImage output = canvas.createUnscaledMosaicImage();
-                ImageIO.write(output, "png", fileToSave);
-                JOptionPane.showMessageDialog(null, "Image saved to: " + fileToSave.getAbsolutePath());
+                double scale = Double.parseDouble(size.trim()) / 100;
+                if (!(scale > 0)) throw new NumberFormatException(size);
+                // The snapshot is taken now; editing can go on while the queue renders it
+                MosaicRenderer renderer = canvas.createMosaicRenderer();
+                exportQueue.submit(scale == 1 ? renderer : renderer.scaled(scale), fileToSave);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(frame, "Not a size: " + size);
+            }
+        }
+    }
+
+    private void saveCanvasAsDeepZoom() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Deep Zoom Image");
+        if (fileChooser.showSaveDialog(null) == JFileChooser.APPROVE_OPTION) {
+            File fileToSave = fileChooser.getSelectedFile();
+            if (!fileToSave.getName().toLowerCase().endsWith("." + ExportQueue.DEEP_ZOOM)) {
+                fileToSave = new File(fileToSave.getAbsolutePath() + "." + ExportQueue.DEEP_ZOOM);
+            }
+            exportQueue.submit(canvas.createMosaicRenderer(), fileToSave);
+        }
+    }
+
+    /** Shows the running export in the bottom bar; called on the EDT for every change of any job. */
+    private void showExportStatus(ExportQueue.Job job) {
+        switch (job.getState()) {
+            case DONE -> exportLabel.setText("Saved " + job.getFile().getName());
+            case CANCELLED -> exportLabel.setText("Cancelled " + job.getFile().getName());
+            case FAILED -> {
+                exportLabel.setText("");
+                job.getError().printStackTrace();
+                JOptionPane.showMessageDialog(frame, "Error saving image " + job.getFile().getName() + ": "
+                        + job.getError().getMessage());
+            }
+            default -> {
+            }
+        }
+        java.util.List<ExportQueue.Job> pending = exportQueue.getPendingJobs();
+        if (!pending.isEmpty() && pending.get(0).getState() == ExportQueue.State.RUNNING) {
+            ExportQueue.Job running = pending.get(0);
+            String text = "Exporting " + running.getFile().getName() + " " + (int) (running.getProgress() * 100) + "%";
+            exportLabel.setText(pending.size() > 1 ? text + " (" + (pending.size() - 1) + " queued)" : text);
+        }
+        cancelExportButton.setVisible(!pending.isEmpty());
+    }
+
+    private void showCancelExportMenu() {
+        JPopupMenu menu = new JPopupMenu();
+        for (ExportQueue.Job job : exportQueue.getPendingJobs()) {
+            JMenuItem item = new JMenuItem("Cancel " + job.getFile().getName());
+            item.addActionListener(e -> job.cancel());
+            menu.add(item);
+        }
+        menu.show(cancelExportButton, 0, -menu.getPreferredSize().height);
+    }
+
+    private void saveProject() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Project");
+        if (fileChooser.showSaveDialog(null) == JFileChooser.APPROVE_OPTION) {
+            File fileToSave = fileChooser.getSelectedFile();
+            if (!fileToSave.getName().toLowerCase().endsWith(".mosaic")) {
+                fileToSave = new File(fileToSave.getAbsolutePath() + ".mosaic");
+            }
+            try {
+                canvas.saveProject(fileToSave);
             } catch (Exception ex) {
                 ex.printStackTrace();
-                JOptionPane.showMessageDialog(null, "Error saving image.");
+                JOptionPane.showMessageDialog(null, "Error saving project.");
             }
         }
     }
+
+    private void openProject() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Open Project");
+        if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+            try {
+                canvas.openProject(fileChooser.getSelectedFile());
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                JOptionPane.showMessageDialog(null, "Error opening project: " + ex.getMessage());
+            }
+        }
+    }
+
+    private void createPhotomosaic() {
+        JFileChooser targetChooser = new JFileChooser();
+        targetChooser.setDialogTitle("Choose Target Image");
+        if (targetChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) return;
+        JFileChooser folderChooser = new JFileChooser();
+        folderChooser.setDialogTitle("Choose Tile Folder");
+        folderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (folderChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) return;
+        String columns = JOptionPane.showInputDialog(frame, "Cells across:", 100);
+        if (columns == null) return;
+
+        File target = targetChooser.getSelectedFile();
+        File folder = folderChooser.getSelectedFile();
+        frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                Photomosaic.Options options = Photomosaic.Options.of(Integer.parseInt(columns.trim()));
+                BufferedImage targetImage = ImageLoader.decodeSource(target).getProxy();
+                TileLibrary library = TileLibrary.scan(folder);
+                return Photomosaic.createComponents(Photomosaic.generate(targetImage, library, options));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).whenComplete((components, ex) -> SwingUtilities.invokeLater(() -> {
+            frame.setCursor(Cursor.getDefaultCursor());
+            if (ex != null) {
+                ex.printStackTrace();
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                JOptionPane.showMessageDialog(null, "Error creating photomosaic: " + cause.getMessage());
+                return;
+            }
+            canvas.addComponents(components);
+            zoomToFit();
+        }));
+    }
+
     private void selectImageToAdd() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Add Image");
+        fileChooser.setMultiSelectionEnabled(true);
         int userSelection = fileChooser.showOpenDialog(null);
         if (userSelection == JFileChooser.APPROVE_OPTION) {
-            File fileToOpen = fileChooser.getSelectedFile();
-            canvas.addImageToCanvas(fileToOpen);
+            canvas.addImagesToCanvas(java.util.List.of(fileChooser.getSelectedFiles()));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders a snapshot of the canvas at unscaled resolution. Tiles are painted in
+ * list order, so the list must run from the back-most image to the front-most.
+ *
+ * The full-resolution pixels of each source are resolved the first time a tile
+ * needs them and then held, so a banded export does not decode a source again
+ * for every band when memory is tight. Banded renders, which run from the top
+ * down, let go of a source once they are past the last row any of its tiles
+ * cover, so they only hold the sources of the bands around the current one.
+ * Renders of the whole mosaic or of a single region let go of all of them when
+ * done.
+ */
+public class MosaicRenderer {
+    private final List<MosaicTile> tiles;
+    private final Rectangle bounds;
+    // Positions in tiles, indexed by their unscaled bounds
+    private final SpatialIndex<Integer> index = new SpatialIndex<>(AppDefaults.SPATIAL_INDEX_CELL_SIZE);
+    private TiledCompositor compositor;
+    private Resampler.Kernel kernel = AppDefaults.RESAMPLE_KERNEL;
+    // Sources have identity equality, so this maps each source object to its pixels
+    private final Map<SourceImage, HeldPixels> pixels = new ConcurrentHashMap<>();
+    // Unscaled row below the lowest tile of each source
+    private final Map<SourceImage, Integer> sourceBottoms = new HashMap<>();
+
+    /** Told after every band how many of the mosaic's rows are done. Throwing from it stops the render. */
+    public interface Progress {
+        void rowsDone(int rows, int total);
+    }
+
+    public MosaicRenderer(List<MosaicTile> tiles) {
+        this.tiles = List.copyOf(tiles);
+        for (int i = 0; i < this.tiles.size(); i++) {
+            MosaicTile tile = this.tiles.get(i);
+            index.insert(i, tile.bounds());
+            sourceBottoms.merge(tile.source(), tile.bounds().y + tile.bounds().height, Math::max);
+        }
+        this.bounds = index.getBounds();
+    }
+
+    /** Composites through the given parallel compositor instead of on the calling thread. */
+    public MosaicRenderer setCompositor(TiledCompositor compositor) {
+        this.compositor = compositor;
+        return this;
+    }
+
+    /** Kernel for tiles drawn at a different size than their source; null for plain bilinear sampling. */
+    public MosaicRenderer setKernel(Resampler.Kernel kernel) {
+        this.kernel = kernel;
+        return this;
+    }
+
+    public Resampler.Kernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * The same mosaic at scale times its unscaled size, with the same compositor and
+     * kernel. Sources are shared, nothing is resampled until it is rendered.
+     */
+    public MosaicRenderer scaled(double scale) {
+        List<MosaicTile> scaled = new ArrayList<>(tiles.size());
+        for (MosaicTile tile : tiles) {
+            scaled.add(tile.scaled(scale));
+        }
+        return new MosaicRenderer(scaled).setCompositor(compositor).setKernel(kernel);
+    }
+
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    public List<MosaicTile> getTiles() {
+        return tiles;
+    }
+
+    /** Resolves the pixels of one source under its own lock rather than the map's, which covers other sources too. */
+    private static final class HeldPixels {
+        private final SourceImage source;
+        private PixelStore store;
+
+        HeldPixels(SourceImage source) {
+            this.source = source;
+        }
+
+        synchronized PixelStore get() {
+            if (store == null) store = source.getPixels();
+            return store;
+        }
+    }
+
+    /** Full-resolution pixels of source, resolved once and held until {@link #releasePixelsAbove} drops them. */
+    public PixelStore pixelsOf(SourceImage source) {
+        HeldPixels held = pixels.get(source);
+        if (held == null) {
+            HeldPixels created = new HeldPixels(source);
+            held = pixels.putIfAbsent(source, created);
+            if (held == null) held = created;
+        }
+        return held.get();
+    }
+
+    /**
+     * Drops the pixels of sources whose tiles all end above the unscaled row y, for
+     * callers that render in bands from the top down. They are resolved again if a
+     * later render needs them.
+     */
+    public void releasePixelsAbove(int y) {
+        pixels.keySet().removeIf(source -> sourceBottoms.get(source) <= y);
+    }
+
+    /** Number of sources whose pixels are currently held. */
+    int getHeldSourceCount() {
+        return pixels.size();
+    }
+
+    public long getPixelCount() {
+        return (long) bounds.width * bounds.height;
+    }
+
+    /** Tiles intersecting region, still in back-to-front order. */
+    public List<MosaicTile> tilesIntersecting(Rectangle region) {
+        List<Integer> positions = index.query(region);
+        Collections.sort(positions);
+        List<MosaicTile> result = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            result.add(tiles.get(position));
+        }
+        return result;
+    }
+
+    public BufferedImage render() {
+        return render(bounds);
+    }
+
+    /**
+     * Renders the whole mosaic bandHeight rows at a time, reporting progress after
+     * each band. Gives the same pixels as {@link #render()}.
+     */
+    public BufferedImage render(int bandHeight, Progress progress) {
+        BufferedImage target = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        int height = Math.max(1, Math.min(bandHeight, bounds.height));
+        BufferedImage band = new BufferedImage(bounds.width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] bandPixels = ((DataBufferInt) band.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < bounds.height; y += height) {
+            int rows = Math.min(height, bounds.height - y);
+            paint(band, new Rectangle(bounds.x, bounds.y + y, bounds.width, rows));
+            System.arraycopy(bandPixels, 0, pixels, y * bounds.width, rows * bounds.width);
+            releasePixelsAbove(bounds.y + y + rows);
+            if (progress != null) progress.rowsDone(y + rows, bounds.height);
+        }
+        return target;
+    }
+
+    /** Renders region on its own, dropping the pixels it resolved once it is done. */
+    public BufferedImage render(Rectangle region) {
+        try {
+            return renderBand(region);
+        } finally {
+            pixels.clear();
+        }
+    }
+
+    /**
+     * Renders region as one band of a top-down pass, holding the pixels it resolved
+     * until the caller drops them with {@link #releasePixelsAbove}.
+     */
+    public BufferedImage renderBand(Rectangle region) {
+        BufferedImage target = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+        paint(target, region);
+        return target;
+    }
+
+    private void paint(BufferedImage target, Rectangle region) {
+        MosaicEvents.Composite event = new MosaicEvents.Composite();
+        long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+        event.begin();
+        if (compositor != null) {
+            compositor.renderInto(this, target, region);
+        } else {
+            renderInto(target, region);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = region.width;
+            event.height = region.height;
+            event.tileCount = tilesIntersecting(region).size();
+            event.parallel = compositor != null;
+            event.bytes = (long) region.width * region.height * Integer.BYTES;
+            event.allocatedBytes = MosaicEvents.allocatedBytes() - allocated;
+            event.commit();
+        }
+    }
+
+    /**
+     * Paints the given unscaled region into the top-left corner of target, an
+     * ARGB image created by this class, clearing it first so the same buffer can be
+     * reused for consecutive bands. Always runs serially on the calling thread.
+     */
+    public void renderInto(BufferedImage target, Rectangle region) {
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        int stride = target.getWidth();
+        for (int y = 0; y < region.height; y++) {
+            Arrays.fill(pixels, y * stride, y * stride + region.width, 0);
+        }
+        for (MosaicTile tile : tilesIntersecting(region)) {
+            tile.compositeInto(pixelsOf(tile.source()), pixels, stride, region, region, kernel);
+        }
+    }
+
+    /**
+     * Encodes the mosaic as PNG one horizontal band at a time. Only a single band of
+     * bandHeight rows is ever allocated, regardless of the size of the mosaic.
+     */
+    public void writePng(OutputStream out, int bandHeight) throws IOException {
+        writePng(out, bandHeight, null);
+    }
+
+    /** Like {@link #writePng(OutputStream, int)}, reporting progress after each band is encoded. */
+    public void writePng(OutputStream out, int bandHeight, Progress progress) throws IOException {
+        int height = Math.max(1, Math.min(bandHeight, bounds.height));
+        BufferedImage band = new BufferedImage(bounds.width, height, BufferedImage.TYPE_INT_ARGB);
+        StreamingPngWriter writer = new StreamingPngWriter(out, bounds.width, bounds.height);
+        for (int y = 0; y < bounds.height; y += height) {
+            int rows = Math.min(height, bounds.height - y);
+            paint(band, new Rectangle(bounds.x, bounds.y + y, bounds.width, rows));
+            writer.writeRows(band, rows);
+            releasePixelsAbove(bounds.y + y + rows);
+            if (progress != null) progress.rowsDone(y + rows, bounds.height);
+        }
+        writer.finish();
+    }
+}
@@ -0,0 +1,175 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Immutable export view of one image on the canvas: the original source, the
+ * region of the source it shows (its crop), and the unscaled rectangle that region
+ * is drawn into. No pixels are copied; export resamples every output pixel exactly
+ * once, straight from the full-resolution source, which is only decoded once a
+ * tile actually needs it.
+ *
+ * Every output pixel is resampled with weights derived only from its absolute
+ * position, so rendering a region in bands or tiles gives the same result as
+ * rendering it in one pass.
+ */
+public record MosaicTile(SourceImage source, Rectangle region, Rectangle bounds) {
+
+    public MosaicTile {
+        region = new Rectangle(region);
+        bounds = new Rectangle(bounds);
+    }
+
+    public MosaicTile(BufferedImage image, Rectangle bounds) {
+        this(SourceImage.of(image), new Rectangle(0, 0, image.getWidth(), image.getHeight()), bounds);
+    }
+
+    /** This tile with its bounds scaled about the origin. Edges are rounded, so neighbouring tiles still meet. */
+    public MosaicTile scaled(double scale) {
+        int x = (int) Math.round(bounds.x * scale);
+        int y = (int) Math.round(bounds.y * scale);
+        int right = (int) Math.round((bounds.x + bounds.width) * scale);
+        int bottom = (int) Math.round((bounds.y + bounds.height) * scale);
+        return new MosaicTile(source, region, new Rectangle(x, y, Math.max(1, right - x), Math.max(1, bottom - y)));
+    }
+
+    public boolean intersects(Rectangle area) {
+        return bounds.intersects(area);
+    }
+
+    /**
+     * Composites this tile (SrcOver) onto dst, a non-premultiplied ARGB buffer holding
+     * the unscaled area dstRegion with rows dstStride ints apart.
+     */
+    public void compositeInto(int[] dst, int dstStride, Rectangle dstRegion) {
+        compositeInto(dst, dstStride, dstRegion, dstRegion, AppDefaults.RESAMPLE_KERNEL);
+    }
+
+    /**
+     * Like {@link #compositeInto(int[], int, Rectangle)} but only touches pixels inside
+     * clip, and resizes with the given kernel. A null kernel interpolates between the
+     * two nearest source pixels on each axis, which is faster but aliases when the
+     * tile is drawn much smaller than its source.
+     */
+    public void compositeInto(int[] dst, int dstStride, Rectangle dstRegion, Rectangle clip, Resampler.Kernel kernel) {
+        compositeInto(source.getPixels(), dst, dstStride, dstRegion, clip, kernel);
+    }
+
+    /** Like the above, reading from pixels, which a renderer resolved from this tile's source beforehand. */
+    public void compositeInto(PixelStore pixels, int[] dst, int dstStride, Rectangle dstRegion, Rectangle clip,
+                              Resampler.Kernel kernel) {
+        Rectangle area = bounds.intersection(dstRegion).intersection(clip);
+        if (area.isEmpty()) return;
+
+        PixelKernels kernels = PixelKernels.get();
+        int srcW = region.width;
+        int srcH = region.height;
+
+        if (srcW == bounds.width && srcH == bounds.height) {
+            int[] row = new int[area.width];
+            for (int y = area.y; y < area.y + area.height; y++) {
+                pixels.read(region.y + y - bounds.y, region.x + area.x - bounds.x, area.width, row);
+                kernels.blend(row, 0, dst, (y - dstRegion.y) * dstStride + (area.x - dstRegion.x), area.width);
+            }
+            return;
+        }
+
+        if (kernel != null) {
+            int[] resampled = new int[area.width * area.height];
+            Rectangle local = new Rectangle(area.x - bounds.x, area.y - bounds.y, area.width, area.height);
+            Resampler.resample(pixels, region, bounds.width, bounds.height, local, kernel, resampled, 0, area.width);
+            for (int y = 0; y < area.height; y++) {
+                kernels.blend(resampled, y * area.width, dst,
+                        (area.y + y - dstRegion.y) * dstStride + (area.x - dstRegion.x), area.width);
+            }
+            return;
+        }
+
+        // Column lookup tables, relative to the first source column this area needs
+        int[] x0 = new int[area.width];
+        int[] x1 = new int[area.width];
+        int[] wx = new int[area.width];
+        for (int i = 0; i < area.width; i++) {
+            int fixed = samplePosition(area.x + i - bounds.x, srcW, bounds.width);
+            x0[i] = clamp(fixed >> 8, srcW);
+            x1[i] = clamp((fixed >> 8) + 1, srcW);
+            wx[i] = fixed < 0 ? 0 : fixed & 0xFF;
+        }
+        int spanX = x0[0];
+        int spanW = x1[area.width - 1] - spanX + 1;
+        for (int i = 0; i < area.width; i++) {
+            x0[i] -= spanX;
+            x1[i] -= spanX;
+        }
+        int[] row0 = new int[spanW];
+        int[] row1 = new int[spanW];
+        int[] sampled = new int[area.width];
+
+        int loaded0 = -1;
+        int loaded1 = -1;
+        for (int y = area.y; y < area.y + area.height; y++) {
+            int fixed = samplePosition(y - bounds.y, srcH, bounds.height);
+            int y0 = clamp(fixed >> 8, srcH);
+            int y1 = clamp((fixed >> 8) + 1, srcH);
+            int wy = fixed < 0 ? 0 : fixed & 0xFF;
+            if (y0 != loaded0) {
+                if (y0 == loaded1) {
+                    int[] swap = row0;
+                    row0 = row1;
+                    row1 = swap;
+                    loaded1 = -1;
+                } else {
+                    pixels.read(region.y + y0, region.x + spanX, spanW, row0);
+                }
+                loaded0 = y0;
+            }
+            if (y1 != loaded1) {
+                pixels.read(region.y + y1, region.x + spanX, spanW, row1);
+                loaded1 = y1;
+            }
+
+            for (int i = 0; i < area.width; i++) {
+                sampled[i] = bilinear(row0[x0[i]], row0[x1[i]], row1[x0[i]], row1[x1[i]], wx[i], wy);
+            }
+            kernels.blend(sampled, 0, dst, (y - dstRegion.y) * dstStride + (area.x - dstRegion.x), area.width);
+        }
+    }
+
+    /** Source coordinate of the centre of destination pixel index, in 24.8 fixed point. */
+    private static int samplePosition(int index, int srcSize, int dstSize) {
+        double position = (index + 0.5) * srcSize / dstSize - 0.5;
+        return (int) Math.floor(position * 256);
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+
+    /** Bilinear interpolation of four ARGB samples in premultiplied space, weights out of 256. */
+    static int bilinear(int c00, int c10, int c01, int c11, int wx, int wy) {
+        int w00 = (256 - wx) * (256 - wy);
+        int w10 = wx * (256 - wy);
+        int w01 = (256 - wx) * wy;
+        int w11 = wx * wy;
+        int a00 = c00 >>> 24, a10 = c10 >>> 24, a01 = c01 >>> 24, a11 = c11 >>> 24;
+        if ((a00 & a10 & a01 & a11) == 0xFF) {
+            int r = (w00 * ((c00 >> 16) & 0xFF) + w10 * ((c10 >> 16) & 0xFF)
+                    + w01 * ((c01 >> 16) & 0xFF) + w11 * ((c11 >> 16) & 0xFF) + 32768) >> 16;
+            int g = (w00 * ((c00 >> 8) & 0xFF) + w10 * ((c10 >> 8) & 0xFF)
+                    + w01 * ((c01 >> 8) & 0xFF) + w11 * ((c11 >> 8) & 0xFF) + 32768) >> 16;
+            int b = (w00 * (c00 & 0xFF) + w10 * (c10 & 0xFF)
+                    + w01 * (c01 & 0xFF) + w11 * (c11 & 0xFF) + 32768) >> 16;
+            return 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+        long wa00 = (long) w00 * a00, wa10 = (long) w10 * a10, wa01 = (long) w01 * a01, wa11 = (long) w11 * a11;
+        long alphaSum = wa00 + wa10 + wa01 + wa11;
+        if (alphaSum == 0) return 0;
+        int a = (int) ((alphaSum + 32768) >> 16);
+        int r = (int) ((wa00 * ((c00 >> 16) & 0xFF) + wa10 * ((c10 >> 16) & 0xFF)
+                + wa01 * ((c01 >> 16) & 0xFF) + wa11 * ((c11 >> 16) & 0xFF) + alphaSum / 2) / alphaSum);
+        int g = (int) ((wa00 * ((c00 >> 8) & 0xFF) + wa10 * ((c10 >> 8) & 0xFF)
+                + wa01 * ((c01 >> 8) & 0xFF) + wa11 * ((c11 >> 8) & 0xFF) + alphaSum / 2) / alphaSum);
+        int b = (int) ((wa00 * (c00 & 0xFF) + wa10 * (c10 & 0xFF)
+                + wa01 * (c01 & 0xFF) + wa11 * (c11 & 0xFF) + alphaSum / 2) / alphaSum);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
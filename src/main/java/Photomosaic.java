@@ -0,0 +1,137 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a photomosaic: the target image is cut into square cells and each cell
+ * gets the library tile whose features are closest to its own. The nearest
+ * candidates of every cell come from a {@link KdTree} in parallel; choosing among
+ * them then walks the cells in row order and penalises tiles already used within
+ * repeatRadius cells, so flat areas are not filled with one image.
+ */
+public class Photomosaic {
+
+    /**
+     * columns: cells across the target. cellSize: unscaled side of each cell on the
+     * canvas. candidates: nearest tiles considered per cell. repeatPenalty: added to
+     * the color distance (0-255 per channel) of a tile used nearby. epsilon: how far
+     * from exact the nearest-tile search may be, see {@link KdTree#nearest(float[], int[], float[], float)}.
+     */
+    public record Options(int columns, int cellSize, int candidates, int repeatRadius, float repeatPenalty,
+                          float epsilon) {
+        public static Options of(int columns) {
+            return new Options(columns, AppDefaults.PHOTOMOSAIC_CELL_SIZE, 16, 4, 48, 1);
+        }
+    }
+
+    /** The library index chosen for every cell, row by row. */
+    public record Result(TileLibrary library, int columns, int rows, int cellSize, int[] tiles) {
+    }
+
+    public static Result generate(BufferedImage target, TileLibrary library, Options options) {
+        if (library.size() == 0) {
+            throw new IllegalArgumentException("The tile library is empty");
+        }
+        int columns = options.columns();
+        int rows = Math.max(1, (int) Math.round((double) columns * target.getHeight() / target.getWidth()));
+        int cells = columns * rows;
+        // Every cell becomes 2x2 pixels, the sub-cell means its features are made of
+        BufferedImage grid = Resampler.resize(target, columns * 2, rows * 2, Resampler.Kernel.BOX);
+        int[] pixels = ((DataBufferInt) grid.getRaster().getDataBuffer()).getData();
+
+        KdTree tree = new KdTree(library.featureMatrix());
+        int k = Math.min(options.candidates(), library.size());
+        int[][] candidates = new int[cells][k];
+        float[][] distances = new float[cells][k];
+        IntStream.range(0, cells).parallel().forEach(cell -> {
+            int column = cell % columns;
+            int row = cell / columns;
+            float[] features = TileLibrary.features(pixels, 2 * row * 2 * columns + 2 * column, 2 * columns);
+            tree.nearest(features, candidates[cell], distances[cell], options.epsilon());
+        });
+
+        int[] chosen = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            int best = candidates[cell][0];
+            double bestScore = Double.MAX_VALUE;
+            for (int c = 0; c < k; c++) {
+                int id = candidates[cell][c];
+                double score = Math.sqrt(distances[cell][c]);
+                if (usedNearby(chosen, columns, cell, options.repeatRadius(), id)) {
+                    score += options.repeatPenalty();
+                }
+                if (score < bestScore) {
+                    bestScore = score;
+                    best = id;
+                }
+            }
+            chosen[cell] = best;
+        }
+        return new Result(library, columns, rows, options.cellSize(), chosen);
+    }
+
+    // Only cells before this one in row order have been assigned yet
+    private static boolean usedNearby(int[] chosen, int columns, int cell, int radius, int id) {
+        int column = cell % columns;
+        int row = cell / columns;
+        for (int r = Math.max(0, row - radius); r <= row; r++) {
+            int last = r == row ? column - 1 : Math.min(columns - 1, column + radius);
+            for (int c = Math.max(0, column - radius); c <= last; c++) {
+                if (chosen[r * columns + c] == id) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One component per cell showing the centred square crop of its tile. Tiles
+     * show the library's cached thumbnail, or else are decoded in parallel with
+     * proxies of about the cell size; export still reads them at full resolution.
+     */
+    public static List<ScaledComponent> createComponents(Result result) throws IOException {
+        List<TileLibrary.Tile> tiles = result.library().getTiles();
+        Map<Integer, SourceImage> sources = new ConcurrentHashMap<>();
+        try {
+            Arrays.stream(result.tiles()).distinct().parallel().forEach(id -> {
+                TileLibrary.Tile tile = tiles.get(id);
+                BufferedImage thumbnail = result.library().getThumbnail(id);
+                int shorter = Math.min(tile.width(), tile.height());
+                try {
+                    // A cached thumbnail is enough to show a cell if it is not upscaled more than the file itself;
+                    // otherwise decode so the shorter side, which the square crop keeps, covers the cell
+                    if (thumbnail != null && Math.min(thumbnail.getWidth(), thumbnail.getHeight())
+                            >= Math.min(shorter, result.cellSize())) {
+                        sources.put(id, new SourceImage(tile.file(), tile.width(), tile.height(), thumbnail));
+                    } else {
+                        sources.put(id, ImageLoader.decodeCovering(tile.file(), result.cellSize()));
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        int size = result.cellSize();
+        List<ScaledComponent> components = new ArrayList<>(result.tiles().length);
+        for (int cell = 0; cell < result.tiles().length; cell++) {
+            SourceImage source = sources.get(result.tiles()[cell]);
+            int side = Math.min(source.getWidth(), source.getHeight());
+            Rectangle crop = new Rectangle((source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+            ScaledComponent sc = new ScaledComponent(source, crop);
+            sc.setImageBounds(new Rectangle((cell % result.columns()) * size, (cell / result.columns()) * size, size, size));
+            sc.setResizedScale((double) size / side);
+            components.add(sc);
+        }
+        return components;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Inner loops over packed ARGB ints used by export and resampling. The default
+ * implementation is plain Java; with AppDefaults.SIMD_KERNELS enabled and the JVM
+ * started with {@code --add-modules jdk.incubator.vector}, the Vector API
+ * implementation from the optional vector source set is used instead. Both give
+ * bit-identical results.
+ */
+public interface PixelKernels {
+    /** SrcOver of count non-premultiplied ARGB pixels from src onto dst. */
+    void blend(int[] src, int srcOffset, int[] dst, int dstOffset, int count);
+
+    /** Sets alpha to 0xFF, turning INT_RGB pixels into opaque ARGB. */
+    void opaque(int[] pixels, int offset, int count);
+
+    void premultiply(int[] pixels, int offset, int count);
+
+    void unpremultiply(int[] pixels, int offset, int count);
+
+    /** Adds each channel of count premultiplied pixels, times weight, to the matching channel sums. */
+    void accumulate(int[] pixels, int offset, int weight, int[] sumA, int[] sumR, int[] sumG, int[] sumB, int count);
+
+    static PixelKernels get() {
+        return Holder.INSTANCE;
+    }
+
+    /** The Vector API implementation if requested and available, the scalar one otherwise. */
+    static PixelKernels create(boolean vector) {
+        if (vector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (PixelKernels) Class.forName("VectorPixelKernels").getConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                // Built without the vector source set
+            }
+        }
+        return new ScalarPixelKernels();
+    }
+
+    final class Holder {
+        private static final PixelKernels INSTANCE = create(AppDefaults.SIMD_KERNELS);
+
+        private Holder() {
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Heap {@link PixelStore} over a BufferedImage. Packed int images, including
+ * sub-image views, are read straight from their backing array; premultiplied ones
+ * are unpremultiplied on the way out.
+ */
+public class PixelRows implements PixelStore {
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+    private final int[] data;
+    private final int offset;
+    private final int stride;
+    private final int alphaMask;
+    private final boolean premultiplied;
+
+    public PixelRows(BufferedImage image) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        int type = image.getType();
+        WritableRaster raster = image.getRaster();
+        if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_ARGB_PRE
+                || type == BufferedImage.TYPE_INT_RGB)
+                && raster.getDataBuffer() instanceof DataBufferInt buffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel) {
+            this.data = buffer.getData();
+            this.stride = sampleModel.getScanlineStride();
+            this.offset = buffer.getOffset()
+                    - raster.getSampleModelTranslateY() * stride
+                    - raster.getSampleModelTranslateX();
+            this.alphaMask = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+            this.premultiplied = type == BufferedImage.TYPE_INT_ARGB_PRE;
+        } else {
+            this.data = null;
+            this.stride = 0;
+            this.offset = 0;
+            this.alphaMask = 0;
+            this.premultiplied = false;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void read(int y, int x, int count, int[] dst) {
+        if (data == null) {
+            image.getRGB(x, y, count, 1, dst, 0, count);
+            return;
+        }
+        int start = offset + y * stride + x;
+        System.arraycopy(data, start, dst, 0, count);
+        if (alphaMask != 0) {
+            PixelKernels.get().opaque(dst, 0, count);
+        } else if (premultiplied) {
+            PixelKernels.get().unpremultiply(dst, 0, count);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Read access to decoded source pixels as non-premultiplied ARGB ints, independent
+ * of whether they live in a BufferedImage on the heap or in a mapped file.
+ * Implementations must allow concurrent reads.
+ */
+public interface PixelStore {
+    int getWidth();
+
+    int getHeight();
+
+    /** Copies count pixels of row y starting at column x into dst[0, count). */
+    void read(int y, int x, int count, int[] dst);
+
+    /** Copies row y into dst[0, width). */
+    default void read(int y, int[] dst) {
+        read(y, 0, getWidth(), dst);
+    }
+}
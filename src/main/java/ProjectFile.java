@@ -0,0 +1,192 @@
+import java.awt.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saved editing session in a single file: a small index describing every image
+ * followed by the display proxy of every distinct source as raw little-endian ARGB
+ * ints. Reopening maps the pixel section and wraps each proxy where it is, so
+ * nothing is decoded and a proxy is only copied to the heap once it is drawn.
+ * Full-resolution pixels still come from the original files when they are needed
+ * for export; in-memory sources are stored whole and exported from the mapping.
+ * <pre>
+ * "MOSAICPROJECT" version
+ * sourceCount, per source: path ("" if none), full width, full height,
+ *                          proxy width, proxy height, alpha, pixel offset
+ * itemCount, per item from back to front: source, region x y w h, bounds x y w h, resized scale
+ * pixel section, each proxy starting on an 8 byte boundary
+ * </pre>
+ */
+public class ProjectFile {
+    private static final String MAGIC = "MOSAICPROJECT";
+    private static final int VERSION = 1;
+
+    /** One image on the canvas, with the geometry an ImageComponent keeps. */
+    public record Item(SourceImage source, Rectangle region, Rectangle bounds, double resizedScale) {
+        public Item {
+            region = new Rectangle(region);
+            bounds = new Rectangle(bounds);
+        }
+    }
+
+    /**
+     * Writes items, ordered from the back-most to the front-most. Sources shared by
+     * several items are stored once. The project is written to a temporary file that
+     * is then moved over file, since the proxies being saved may be mapped from it.
+     */
+    public static void write(File file, List<Item> items) throws IOException {
+        Map<SourceImage, Integer> sourceIds = new IdentityHashMap<>();
+        List<SourceImage> sources = new ArrayList<>();
+        for (Item item : items) {
+            if (sourceIds.putIfAbsent(item.source(), sources.size()) == null) {
+                sources.add(item.source());
+            }
+        }
+
+        // The index holds the pixel offsets, so lay the pixels out from its size first
+        byte[] header = header(items, sources, sourceIds, new long[sources.size()]);
+        long[] offsets = new long[sources.size()];
+        long position = align(header.length);
+        for (int i = 0; i < sources.size(); i++) {
+            SourceImage source = sources.get(i);
+            offsets[i] = position;
+            position = align(position + (long) source.getProxyWidth() * source.getProxyHeight() * Integer.BYTES);
+        }
+        header = header(items, sources, sourceIds, offsets);
+
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap(header), 0);
+                for (int i = 0; i < sources.size(); i++) {
+                    writePixels(channel, sources.get(i).getProxyPixels(), offsets[i]);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /** Reads the items back in the order they were written. Proxies stay in the mapped file until they are drawn. */
+    public static List<Item> read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length()];
+            in.readFully(magic);
+            if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))) {
+                throw new IOException("Not a mosaic project: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported project version " + version + ": " + file);
+            }
+
+            int sourceCount = in.readInt();
+            String[] paths = new String[sourceCount];
+            int[][] sizes = new int[sourceCount][];
+            boolean[] alpha = new boolean[sourceCount];
+            long[] offsets = new long[sourceCount];
+            for (int i = 0; i < sourceCount; i++) {
+                paths[i] = in.readUTF();
+                sizes[i] = new int[]{in.readInt(), in.readInt(), in.readInt(), in.readInt()};
+                alpha[i] = in.readBoolean();
+                offsets[i] = in.readLong();
+            }
+
+            SourceImage[] sources = new SourceImage[sourceCount];
+            for (int i = 0; i < sourceCount; i++) {
+                // The mapping stays valid after the channel is closed
+                PixelStore proxy = MappedPixelStore.map(channel, offsets[i], sizes[i][2], sizes[i][3],
+                        ByteOrder.LITTLE_ENDIAN);
+                File source = paths[i].isEmpty() ? null : new File(paths[i]);
+                sources[i] = SourceImage.ofProxyPixels(source, sizes[i][0], sizes[i][1], proxy, alpha[i]);
+            }
+
+            int itemCount = in.readInt();
+            List<Item> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                int sourceId = in.readInt();
+                if (sourceId < 0 || sourceId >= sourceCount) {
+                    throw new IOException("Corrupt project, bad source " + sourceId + ": " + file);
+                }
+                Rectangle region = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                Rectangle bounds = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                items.add(new Item(sources[sourceId], region, bounds, in.readDouble()));
+            }
+            return items;
+        }
+    }
+
+    private static byte[] header(List<Item> items, List<SourceImage> sources, Map<SourceImage, Integer> sourceIds,
+                                 long[] offsets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            SourceImage source = sources.get(i);
+            out.writeUTF(source.getFile() == null ? "" : source.getFile().getAbsolutePath());
+            out.writeInt(source.getWidth());
+            out.writeInt(source.getHeight());
+            out.writeInt(source.getProxyWidth());
+            out.writeInt(source.getProxyHeight());
+            out.writeBoolean(source.hasAlpha());
+            out.writeLong(offsets[i]);
+        }
+        out.writeInt(items.size());
+        for (Item item : items) {
+            out.writeInt(sourceIds.get(item.source()));
+            Rectangle r = item.region();
+            out.writeInt(r.x);
+            out.writeInt(r.y);
+            out.writeInt(r.width);
+            out.writeInt(r.height);
+            Rectangle b = item.bounds();
+            out.writeInt(b.x);
+            out.writeInt(b.y);
+            out.writeInt(b.width);
+            out.writeInt(b.height);
+            out.writeDouble(item.resizedScale());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writePixels(FileChannel channel, PixelStore pixels, long position) throws IOException {
+        int width = pixels.getWidth();
+        int[] row = new int[width];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int y = 0; y < pixels.getHeight(); y++) {
+            pixels.read(y, row);
+            ints.clear();
+            ints.put(row);
+            buffer.clear();
+            writeFully(channel, buffer, position);
+            position += buffer.capacity();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
@@ -0,0 +1,244 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Separable resampling of packed ARGB pixels. Each output pixel is a weighted sum
+ * over a kernel window that widens with the reduction factor, so a downscale
+ * averages every source pixel it covers instead of sampling a few of them. Rows
+ * are filtered horizontally and then vertically, in premultiplied space with
+ * 14-bit fixed-point weights.
+ *
+ * The weights of an output pixel depend only on its absolute position, so
+ * resampling an image in bands or tiles gives the same pixels as doing it whole.
+ */
+public class Resampler {
+    private static final int WEIGHT_BITS = 14;
+    private static final int ONE = 1 << WEIGHT_BITS;
+    private static final int HALF = ONE >> 1;
+    // Output rows per parallel task in resize
+    private static final int ROWS_PER_TASK = 64;
+
+    public enum Kernel {
+        BOX(0.5) {
+            @Override
+            double weight(double x) {
+                return x > -0.5 && x <= 0.5 ? 1 : 0;
+            }
+        },
+        BILINEAR(1) {
+            @Override
+            double weight(double x) {
+                return Math.max(0, 1 - Math.abs(x));
+            }
+        },
+        // Catmull-Rom, a = -0.5
+        BICUBIC(2) {
+            @Override
+            double weight(double x) {
+                x = Math.abs(x);
+                if (x < 1) return (1.5 * x - 2.5) * x * x + 1;
+                if (x < 2) return ((-0.5 * x + 2.5) * x - 4) * x + 2;
+                return 0;
+            }
+        },
+        LANCZOS3(3) {
+            @Override
+            double weight(double x) {
+                if (x == 0) return 1;
+                if (Math.abs(x) >= 3) return 0;
+                double px = Math.PI * x;
+                return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+            }
+        };
+
+        private final double radius;
+
+        Kernel(double radius) {
+            this.radius = radius;
+        }
+
+        /** Reach of the kernel in source pixels at a scale of 1. */
+        public double getRadius() {
+            return radius;
+        }
+
+        abstract double weight(double x);
+    }
+
+    /** First source index, tap count and weights (out of 2^14) of a range of output indices. */
+    private record Contributions(int[] start, int[] count, int[] weights, int stride) {
+        int end() {
+            int end = 0;
+            for (int i = 0; i < start.length; i++) {
+                end = Math.max(end, start[i] + count[i]);
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Resizes a whole image, splitting the output rows across the common pool.
+     * Reductions by more than 4x are first halved with a 2x2 box until the rest is
+     * smaller, which keeps the kernel short. The result is INT_ARGB if the image
+     * has alpha, INT_RGB otherwise.
+     */
+    public static BufferedImage resize(BufferedImage image, int width, int height, Kernel kernel) {
+        boolean alpha = image.getColorModel().hasAlpha();
+        BufferedImage result = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        PixelStore source = new PixelRows(image);
+        while (source.getWidth() >= 4 * width && source.getHeight() >= 4 * height) {
+            source = halve(source);
+        }
+        PixelStore pixels = source;
+        Rectangle region = new Rectangle(0, 0, pixels.getWidth(), pixels.getHeight());
+        int[] out = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        int tasks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(t -> {
+            int y = t * ROWS_PER_TASK;
+            Rectangle area = new Rectangle(0, y, width, Math.min(ROWS_PER_TASK, height - y));
+            resample(pixels, region, width, height, area, kernel, out, y * width, width);
+        });
+        return result;
+    }
+
+    /**
+     * Resamples srcRegion of src to dstWidth x dstHeight and writes the part of the
+     * result inside dstArea (in resized coordinates) to out as non-premultiplied
+     * ARGB, starting at outOffset with rows outStride ints apart. Runs on the
+     * calling thread.
+     */
+    public static void resample(PixelStore src, Rectangle srcRegion, int dstWidth, int dstHeight,
+                                Rectangle dstArea, Kernel kernel, int[] out, int outOffset, int outStride) {
+        if (dstArea.isEmpty()) return;
+        Contributions columns = contributions(srcRegion.width, dstWidth, dstArea.x, dstArea.width, kernel);
+        Contributions rows = contributions(srcRegion.height, dstHeight, dstArea.y, dstArea.height, kernel);
+        int spanX = columns.start()[0];
+        int spanW = columns.end() - spanX;
+        int spanY = rows.start()[0];
+        int spanH = rows.end() - spanY;
+        int width = dstArea.width;
+
+        PixelKernels kernels = PixelKernels.get();
+
+        // Horizontal pass over every source row the area needs
+        int[] line = new int[spanW];
+        int[] horizontal = new int[spanH * width];
+        for (int r = 0; r < spanH; r++) {
+            src.read(srcRegion.y + spanY + r, srcRegion.x + spanX, spanW, line);
+            kernels.premultiply(line, 0, spanW);
+            for (int i = 0; i < width; i++) {
+                int first = columns.start()[i] - spanX;
+                int w = i * columns.stride();
+                int a = HALF, red = HALF, g = HALF, b = HALF;
+                for (int k = 0; k < columns.count()[i]; k++) {
+                    int p = line[first + k];
+                    int weight = columns.weights()[w + k];
+                    a += (p >>> 24) * weight;
+                    red += ((p >> 16) & 0xFF) * weight;
+                    g += ((p >> 8) & 0xFF) * weight;
+                    b += (p & 0xFF) * weight;
+                }
+                horizontal[r * width + i] = pack(a, red, g, b);
+            }
+        }
+
+        // Vertical pass, accumulating whole rows at a time
+        int[] sumA = new int[width];
+        int[] sumR = new int[width];
+        int[] sumG = new int[width];
+        int[] sumB = new int[width];
+        for (int j = 0; j < dstArea.height; j++) {
+            Arrays.fill(sumA, HALF);
+            Arrays.fill(sumR, HALF);
+            Arrays.fill(sumG, HALF);
+            Arrays.fill(sumB, HALF);
+            int first = rows.start()[j] - spanY;
+            int w = j * rows.stride();
+            for (int k = 0; k < rows.count()[j]; k++) {
+                int weight = rows.weights()[w + k];
+                kernels.accumulate(horizontal, (first + k) * width, weight, sumA, sumR, sumG, sumB, width);
+            }
+            int d = outOffset + j * outStride;
+            for (int i = 0; i < width; i++) {
+                out[d + i] = pack(sumA[i], sumR[i], sumG[i], sumB[i]);
+            }
+            kernels.unpremultiply(out, d, width);
+        }
+    }
+
+    private static Contributions contributions(int srcSize, int dstSize, int first, int length, Kernel kernel) {
+        double scale = (double) srcSize / dstSize;
+        double filterScale = Math.max(1, scale);
+        double support = kernel.radius * filterScale;
+        int stride = (int) Math.ceil(2 * support) + 2;
+        int[] start = new int[length];
+        int[] count = new int[length];
+        int[] weights = new int[length * stride];
+        double[] w = new double[stride];
+        for (int i = 0; i < length; i++) {
+            double center = (first + i + 0.5) * scale;
+            int left = Math.max(0, (int) Math.floor(center - support));
+            int right = Math.min(srcSize, (int) Math.ceil(center + support));
+            int n = 0;
+            double sum = 0;
+            for (int j = left; j < right; j++) {
+                w[n] = kernel.weight((j + 0.5 - center) / filterScale);
+                sum += w[n++];
+            }
+            if (sum == 0) {
+                // Window narrower than a pixel: take the nearest one
+                left = Math.max(0, Math.min(srcSize - 1, (int) center));
+                n = 1;
+                w[0] = sum = 1;
+            }
+            int total = 0;
+            int largest = 0;
+            for (int k = 0; k < n; k++) {
+                int fixed = (int) Math.round(w[k] / sum * ONE);
+                weights[i * stride + k] = fixed;
+                total += fixed;
+                if (w[k] > w[largest]) largest = k;
+            }
+            // Rounding must not change the overall brightness
+            weights[i * stride + largest] += ONE - total;
+            start[i] = left;
+            count[i] = n;
+        }
+        return new Contributions(start, count, weights, stride);
+    }
+
+    /** Halves both dimensions (rounding up) with a 2x2 box in premultiplied space. */
+    private static PixelStore halve(PixelStore src) {
+        int srcW = src.getWidth();
+        int srcH = src.getHeight();
+        int width = (srcW + 1) / 2;
+        int height = (srcH + 1) / 2;
+        BufferedImage half = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] out = ((DataBufferInt) half.getRaster().getDataBuffer()).getData();
+        IntStream.range(0, height).parallel().forEach(y -> {
+            int[] row0 = new int[srcW];
+            int[] row1 = new int[srcW];
+            src.read(2 * y, row0);
+            src.read(Math.min(srcH - 1, 2 * y + 1), row1);
+            for (int x = 0; x < width; x++) {
+                int x0 = 2 * x;
+                int x1 = Math.min(srcW - 1, x0 + 1);
+                out[y * width + x] = ScalarPixelKernels.average(row0[x0], row0[x1], row1[x0], row1[x1]);
+            }
+        });
+        return new PixelRows(half);
+    }
+
+    /** Rounds fixed-point channel sums and clamps them to a valid premultiplied pixel. */
+    private static int pack(int a, int r, int g, int b) {
+        a = Math.max(0, Math.min(255, a >> WEIGHT_BITS));
+        r = Math.max(0, Math.min(a, r >> WEIGHT_BITS));
+        g = Math.max(0, Math.min(a, g >> WEIGHT_BITS));
+        b = Math.max(0, Math.min(a, b >> WEIGHT_BITS));
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
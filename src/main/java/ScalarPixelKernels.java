@@ -0,0 +1,89 @@
+/** Plain Java {@link PixelKernels}, one pixel at a time. */
+public class ScalarPixelKernels implements PixelKernels {
+
+    @Override
+    public void blend(int[] src, int srcOffset, int[] dst, int dstOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[dstOffset + i] = blend(src[srcOffset + i], dst[dstOffset + i]);
+        }
+    }
+
+    @Override
+    public void opaque(int[] pixels, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            pixels[i] |= 0xFF000000;
+        }
+    }
+
+    @Override
+    public void premultiply(int[] pixels, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            pixels[i] = premultiply(pixels[i]);
+        }
+    }
+
+    @Override
+    public void unpremultiply(int[] pixels, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            pixels[i] = unpremultiply(pixels[i]);
+        }
+    }
+
+    @Override
+    public void accumulate(int[] pixels, int offset, int weight, int[] sumA, int[] sumR, int[] sumG, int[] sumB,
+                           int count) {
+        for (int i = 0; i < count; i++) {
+            int p = pixels[offset + i];
+            sumA[i] += (p >>> 24) * weight;
+            sumR[i] += ((p >> 16) & 0xFF) * weight;
+            sumG[i] += ((p >> 8) & 0xFF) * weight;
+            sumB[i] += (p & 0xFF) * weight;
+        }
+    }
+
+    /** SrcOver of two non-premultiplied ARGB pixels. */
+    static int blend(int src, int dst) {
+        int sa = src >>> 24;
+        if (sa == 0xFF) return src;
+        if (sa == 0) return dst;
+        int da = dst >>> 24;
+        if (da == 0) return src;
+        int dw = da * (255 - sa);
+        int outA255 = sa * 255 + dw;
+        int r = (((src >> 16) & 0xFF) * sa * 255 + ((dst >> 16) & 0xFF) * dw + outA255 / 2) / outA255;
+        int g = (((src >> 8) & 0xFF) * sa * 255 + ((dst >> 8) & 0xFF) * dw + outA255 / 2) / outA255;
+        int b = ((src & 0xFF) * sa * 255 + (dst & 0xFF) * dw + outA255 / 2) / outA255;
+        int a = (outA255 + 127) / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /** Mean of four ARGB pixels, weighted by alpha. */
+    static int average(int c00, int c10, int c01, int c11) {
+        int p00 = premultiply(c00), p10 = premultiply(c10), p01 = premultiply(c01), p11 = premultiply(c11);
+        int a = ((p00 >>> 24) + (p10 >>> 24) + (p01 >>> 24) + (p11 >>> 24) + 2) >> 2;
+        int r = (((p00 >> 16) & 0xFF) + ((p10 >> 16) & 0xFF) + ((p01 >> 16) & 0xFF) + ((p11 >> 16) & 0xFF) + 2) >> 2;
+        int g = (((p00 >> 8) & 0xFF) + ((p10 >> 8) & 0xFF) + ((p01 >> 8) & 0xFF) + ((p11 >> 8) & 0xFF) + 2) >> 2;
+        int b = ((p00 & 0xFF) + (p10 & 0xFF) + (p01 & 0xFF) + (p11 & 0xFF) + 2) >> 2;
+        return unpremultiply((a << 24) | (r << 16) | (g << 8) | b);
+    }
+
+    static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) return argb;
+        if (a == 0) return 0;
+        int r = (((argb >> 16) & 0xFF) * a + 127) / 255;
+        int g = (((argb >> 8) & 0xFF) * a + 127) / 255;
+        int b = ((argb & 0xFF) * a + 127) / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    static int unpremultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) return argb;
+        if (a == 0) return 0;
+        int r = (((argb >> 16) & 0xFF) * 255 + a / 2) / a;
+        int g = (((argb >> 8) & 0xFF) * 255 + a / 2) / a;
+        int b = ((argb & 0xFF) * 255 + a / 2) / a;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -1,22 +1,272 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class ScaledCanvas extends JLayeredPane {
+public class ScaledCanvas extends JLayeredPane implements Scrollable {
+    // Slack around a component's bounds for its outline stroke and handles when repainting
+    static final int REPAINT_MARGIN = 2;
+    // Client property for Edit menu items that do not depend on a selection
+    static final String SELECTION_INDEPENDENT = "mosaic.selectionIndependent";
     private double scale = 1.0;
     private ScaledComponent selectedComponent = null;
+    // Unscaled image bounds of every ScaledComponent on the canvas
+    private final SpatialIndex<ScaledComponent> index = new SpatialIndex<>(AppDefaults.SPATIAL_INDEX_CELL_SIZE);
+    // In scene mode only the selected component is a live child with up to date bounds.
+    // The others are hidden and painted by the canvas itself through a single scale
+    // transform, so zooming costs one setBounds and a repaint of what is visible.
+    private boolean sceneMode = false;
+    // Components that are visible children with bounds at the current scale. Inside a
+    // viewport these are the ones near the visible area plus the selection; the rest
+    // are hidden with stale bounds, so zooming and painting only touch what can be seen.
+    private Set<ScaledComponent> live = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Unscaled area whose components are live, or null when every component is
+    private Rectangle liveArea = null;
+    private JViewport viewport = null;
+    private final ChangeListener viewportListener = e -> viewportChanged();
+    private final Map<Component, Integer> zOrder = new IdentityHashMap<>();
+    private boolean zOrderDirty = true;
+    private ScaledComponent pressTarget = null;
+    private final EditHistory history = new EditHistory();
+    // Decodes of placeholders added by addImagesToCanvas whose pixels are not swapped in yet
+    private final Map<ScaledComponent, CompletableFuture<SourceImage>> decoding = new IdentityHashMap<>();
+    private final MouseAdapter sceneMouseHandler = new MouseAdapter() {
+        @Override
+        public void mousePressed(MouseEvent e) {
+            pressTarget = topComponentAt(toUnscaled(e.getPoint()));
+            if (pressTarget != null && pressTarget != selectedComponent) {
+                selectComponent(pressTarget);
+            }
+            forwardToPressTarget(e);
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            forwardToPressTarget(e);
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            forwardToPressTarget(e);
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            forwardToPressTarget(e);
+        }
+    };
+
+    public ScaledCanvas() {
+        // Opaque so a viewport can blit when scrolling
+        setOpaque(true);
+        setBackground(UIManager.getColor("Panel.background"));
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.PARENT_CHANGED) != 0 && e.getChanged() == this) {
+                if (viewport != null) viewport.removeChangeListener(viewportListener);
+                viewport = getParent() instanceof JViewport parent ? parent : null;
+                if (viewport != null) {
+                    viewport.setScrollMode(JViewport.BLIT_SCROLL_MODE);
+                    viewport.addChangeListener(viewportListener);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void addImpl(Component comp, Object constraints, int index) {
+        super.addImpl(comp, constraints, index);
+        zOrderDirty = true;
+        if (comp instanceof ScaledComponent sc) {
+            this.index.insert(sc, sc.getImageBounds());
+            if (isLive(sc)) {
+                live.add(sc);
+            } else {
+                sc.setVisible(false);
+            }
+        }
+    }
 
     @Override
     public void remove(Component comp) {
         if (comp == selectedComponent) {
+            selectedComponent.setSelected(false); // Undo must not bring it back drawn as selected
             selectedComponent = null; // Clear selection if removed
             updateEditMenu(); // Update menu state
         }
         super.remove(comp);
     }
 
+    @Override
+    public void remove(int index) {
+        Component comp = getComponent(index);
+        super.remove(index);
+        zOrderDirty = true;
+        if (comp instanceof ScaledComponent sc) {
+            if (!sc.isVisible()) repaintRegion(toScaled(sc.getImageBounds()));
+            this.index.remove(sc);
+            live.remove(sc);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        super.removeAll();
+        zOrderDirty = true;
+        index.clear();
+        live.clear();
+    }
+
+    @Override
+    public void setComponentZOrder(Component comp, int index) {
+        super.setComponentZOrder(comp, index);
+        zOrderDirty = true;
+    }
+
+    void imageBoundsChanged(ScaledComponent sc) {
+        if (sc.getParent() == this) {
+            index.update(sc, sc.getImageBounds());
+        }
+    }
+
+    /** Components whose unscaled image bounds intersect the given unscaled area, in no particular order. */
+    public List<ScaledComponent> componentsIntersecting(Rectangle unscaledArea) {
+        return index.query(unscaledArea);
+    }
+
+    /** Front-most component whose unscaled image bounds contain the given unscaled point, or null. */
+    public ScaledComponent topComponentAt(Point unscaledPoint) {
+        ScaledComponent top = null;
+        int topOrder = Integer.MAX_VALUE;
+        for (ScaledComponent sc : index.queryPoint(unscaledPoint)) {
+            int order = getComponentZOrder(sc);
+            if (order < topOrder) {
+                top = sc;
+                topOrder = order;
+            }
+        }
+        return top;
+    }
+
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Swaps original for its replacements behind everything else as one undoable
+     * edit, with a single layout pass however many replacements there are.
+     */
+    public void replaceComponent(ScaledComponent original, List<ScaledComponent> replacements) {
+        List<CanvasEdits.Placement> removed = List.of(new CanvasEdits.Placement(original, getComponentZOrder(original)));
+        remove(original);
+        int first = getComponentCount();
+        List<CanvasEdits.Placement> added = new ArrayList<>(replacements.size());
+        for (ScaledComponent sc : replacements) {
+            add(sc, JLayeredPane.DEFAULT_LAYER);
+            added.add(new CanvasEdits.Placement(sc, first + added.size()));
+        }
+        updateChildrenBounds();
+        history.record(new CanvasEdits.Replace(this, removed, added));
+    }
+
+    /** Puts many components behind everything else as one undoable edit, with a single layout pass. */
+    public void addComponents(List<ScaledComponent> components) {
+        int first = getComponentCount();
+        List<CanvasEdits.Placement> added = new ArrayList<>(components.size());
+        for (ScaledComponent sc : components) {
+            add(sc, JLayeredPane.DEFAULT_LAYER);
+            added.add(new CanvasEdits.Placement(sc, first + added.size()));
+        }
+        updateChildrenBounds();
+        history.record(new CanvasEdits.Replace(this, List.of(), added));
+    }
+
+    public void deleteComponent(ScaledComponent sc) {
+        List<CanvasEdits.Placement> removed = List.of(new CanvasEdits.Placement(sc, getComponentZOrder(sc)));
+        remove(sc);
+        history.record(new CanvasEdits.Replace(this, removed, List.of()));
+    }
+
+    /**
+     * Arranges every image with the given {@link AutoLayout} mode as one undoable
+     * edit. Images are laid out in z-order, front-most first.
+     */
+    public void autoLayout(AutoLayout.Mode mode) {
+        List<ScaledComponent> components = new ArrayList<>();
+        for (Component comp : getComponents()) {
+            if (comp instanceof ScaledComponent sc) {
+                components.add(sc);
+            }
+        }
+        List<Dimension> sizes = new ArrayList<>(components.size());
+        for (ScaledComponent sc : components) {
+            sizes.add(sc.getImageDimension());
+        }
+        List<Rectangle> bounds = AutoLayout.layout(sizes, mode, AppDefaults.AUTO_LAYOUT_SPACING);
+        List<ScaledComponent.Geometry> before = new ArrayList<>(components.size());
+        List<ScaledComponent.Geometry> after = new ArrayList<>(components.size());
+        for (int i = 0; i < components.size(); i++) {
+            ScaledComponent.Geometry geometry = components.get(i).getGeometry();
+            Rectangle b = bounds.get(i);
+            before.add(geometry);
+            after.add(new ScaledComponent.Geometry(geometry.region(), b, (double) b.width / geometry.region().width));
+        }
+        CanvasEdits.Arrange edit = new CanvasEdits.Arrange(this, components, before, after);
+        edit.redo();
+        history.record(edit);
+    }
+
+    /** Sets the geometry of many components, then lays out and repaints the canvas once. */
+    void applyGeometries(List<ScaledComponent> components, List<ScaledComponent.Geometry> geometries) {
+        for (int i = 0; i < components.size(); i++) {
+            components.get(i).applyGeometry(geometries.get(i));
+        }
+        updateChildrenBounds();
+    }
+
+    /** Brings the component's canvas bounds back in line with its image bounds after an undo or redo. */
+    void layoutComponent(ScaledComponent sc) {
+        Rectangle before = paintedBounds(sc);
+        syncLive(sc);
+        updatePreferredSize();
+        repaintRegion(before, paintedBounds(sc));
+    }
+
+    public boolean isSceneMode() {
+        return sceneMode;
+    }
+
+    /**
+     * Switches between laying out every image as a Swing component and painting the
+     * unselected ones as a scene under one transform. Only the selected image keeps
+     * its handles and mouse handling; clicking another image selects it.
+     */
+    public void setSceneMode(boolean sceneMode) {
+        if (this.sceneMode == sceneMode) return;
+        this.sceneMode = sceneMode;
+        if (sceneMode) {
+            addMouseListener(sceneMouseHandler);
+            addMouseMotionListener(sceneMouseHandler);
+        } else {
+            removeMouseListener(sceneMouseHandler);
+            removeMouseMotionListener(sceneMouseHandler);
+        }
+        updateChildrenBounds();
+    }
+
     public void setScale(double scale) {
         this.scale = scale;
     }
@@ -25,33 +275,101 @@ public class ScaledCanvas extends JLayeredPane {
         return scale;
     }
 
-    public void addImageToCanvas(File fileToOpen) {
-        try {
-            BufferedImage img = ImageIO.read(fileToOpen);
-            if (img != null) {
-                ScaledComponent sc = new ScaledComponent(img);
-                sc.scaleAndSetBounds(scale);
-                add(sc);
-                this.setComponentZOrder(sc, 0);
-                selectComponent(sc);
-                repaint();
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(null, "Error opening image.");
+    /**
+     * Changes the scale and lays out again, keeping the canvas point anchor (at the
+     * old scale) under the same spot of the viewport.
+     */
+    public void zoomAt(double newScale, Point anchor) {
+        double factor = newScale / scale;
+        setScale(newScale);
+        if (viewport != null) {
+            updatePreferredSize();
+            Point view = viewport.getViewPosition();
+            Dimension extent = viewport.getExtentSize();
+            Dimension size = getPreferredSize();
+            size = new Dimension(Math.max(size.width, extent.width), Math.max(size.height, extent.height));
+            int x = (int) Math.round(anchor.x * factor) - (anchor.x - view.x);
+            int y = (int) Math.round(anchor.y * factor) - (anchor.y - view.y);
+            viewport.setViewSize(size);
+            viewport.setViewPosition(new Point(Math.max(0, Math.min(x, size.width - extent.width)),
+                    Math.max(0, Math.min(y, size.height - extent.height))));
         }
+        updateChildrenBounds();
+    }
+
+    public CompletableFuture<Void> addImageToCanvas(File fileToOpen) {
+        return addImagesToCanvas(List.of(fileToOpen));
+    }
+
+    /**
+     * Adds a placeholder for every file straight away and decodes the files in
+     * parallel in the background. Nothing reads the files on the EDT, so placeholders
+     * start at AppDefaults.PLACEHOLDER_SIZE and take the image's size when its pixels
+     * are swapped in. Files that fail are removed and reported together once the
+     * whole batch is done. The returned future completes on the EDT after that.
+     */
+    public CompletableFuture<Void> addImagesToCanvas(List<File> files) {
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        ScaledComponent last = null;
+        for (File file : files) {
+            ScaledComponent sc = new ScaledComponent(new Dimension(AppDefaults.PLACEHOLDER_SIZE, AppDefaults.PLACEHOLDER_SIZE));
+            sc.scaleAndSetBounds(scale);
+            add(sc);
+            this.setComponentZOrder(sc, 0);
+            last = sc;
+            CompletableFuture<SourceImage> decode = ImageLoader.decodeAsync(file);
+            decoding.put(sc, decode);
+            pending.add(decode.whenComplete((img, ex) -> SwingUtilities.invokeLater(() -> {
+                decoding.remove(sc);
+                if (sc.getParent() != this) {
+                    // Deleted while decoding; only the history still holds it, so leave it without pixels
+                    return;
+                }
+                if (ex == null) {
+                    sc.setGeometry(loadedGeometry(sc, img));
+                    sc.setSource(img);
+                    repaintRegion(paintedBounds(sc));
+                } else {
+                    ex.printStackTrace();
+                    failures.add(file.getName());
+                    remove(sc);
+                    repaintRegion(paintedBounds(sc));
+                }
+            })));
+        }
+        if (last != null) {
+            selectComponent(last);
+        }
+        repaint();
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, ex) -> SwingUtilities.invokeLater(() -> {
+                    if (!failures.isEmpty() && !GraphicsEnvironment.isHeadless()) {
+                        JOptionPane.showMessageDialog(null, "Error opening image(s): " + String.join(", ", failures));
+                    }
+                    done.complete(null);
+                }));
+        return done;
     }
 
     public void selectComponent(ScaledComponent image) {
+        Rectangle before = selectedComponent == null ? null : paintedBounds(selectedComponent);
         if (selectedComponent != null && selectedComponent != image) {
             selectedComponent.setSelected(false);
         }
+        ScaledComponent previous = selectedComponent;
         selectedComponent = image;
+        if (previous != null && previous != image && previous.getParent() == this) {
+            syncLive(previous);
+        }
         if (image != null) {
             image.setSelected(true);
+            syncLive(image);
         }
         updateEditMenu();
-        repaint();
+        repaintRegion(before, image == null ? null : paintedBounds(image));
     }
 
     public ScaledComponent getSelectedComponent() {
@@ -72,7 +390,7 @@ public class ScaledCanvas extends JLayeredPane {
                     if (menu != null && menu.getText().equals("Edit")) {
                         for (int j = 0; j < menu.getItemCount(); j++) {
                             JMenuItem item = menu.getItem(j);
-                            if (item != null) {
+                            if (item != null && item.getClientProperty(SELECTION_INDEPENDENT) == null) {
                                 item.setEnabled(selectedComponent != null);
                             }
                         }
@@ -83,108 +401,394 @@ public class ScaledCanvas extends JLayeredPane {
     }
 
     public void updateChildrenBounds() {
-        for (Component comp : getComponents()) {
-            if (comp instanceof ScaledComponent ic) {
-                Rectangle origBounds = ic.getImageBounds();
-                int newX = (int) (origBounds.x * scale);
-                int newY = (int) (origBounds.y * scale);
-                int newWidth = (int) (origBounds.getWidth() * scale);
-                int newHeight = (int) (origBounds.getHeight() * scale);
-                comp.setBounds(newX, newY, newWidth, newHeight);
-            }
-        }
         updatePreferredSize();
+        updateLiveComponents();
         revalidate();
         repaint();
     }
 
+    /**
+     * Shows and lays out the components that should be live and hides the ones that
+     * no longer should. Costs the number of live components, not the total.
+     */
+    private void updateLiveComponents() {
+        Set<ScaledComponent> next = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (sceneMode) {
+            liveArea = new Rectangle();
+        } else {
+            liveArea = viewArea();
+            if (liveArea == null) {
+                for (Component comp : getComponents()) {
+                    if (comp instanceof ScaledComponent sc) next.add(sc);
+                }
+            } else {
+                next.addAll(index.query(liveArea));
+            }
+        }
+        if (selectedComponent != null && selectedComponent.getParent() == this) {
+            next.add(selectedComponent);
+        }
+        for (ScaledComponent sc : live) {
+            if (!next.contains(sc)) sc.setVisible(false);
+        }
+        for (ScaledComponent sc : next) {
+            sc.setBounds(toScaled(sc.getImageBounds()));
+            sc.setVisible(true);
+        }
+        live = next;
+    }
+
+    private boolean isLive(ScaledComponent sc) {
+        return sc == selectedComponent
+                || !sceneMode && (liveArea == null || liveArea.intersects(sc.getImageBounds()));
+    }
+
+    private void syncLive(ScaledComponent sc) {
+        if (isLive(sc)) {
+            sc.setBounds(toScaled(sc.getImageBounds()));
+            sc.setVisible(true);
+            live.add(sc);
+        } else {
+            sc.setVisible(false);
+            live.remove(sc);
+        }
+    }
+
+    /**
+     * Unscaled area to keep live: the viewport's visible rectangle grown by half its
+     * size on every side, so short scrolls need no layout. Null outside a viewport,
+     * or before it has a size, meaning everything.
+     */
+    private Rectangle viewArea() {
+        if (viewport == null) return null;
+        Rectangle view = viewport.getViewRect();
+        if (view.isEmpty()) return null;
+        view.grow(view.width / 2, view.height / 2);
+        return toUnscaledArea(view);
+    }
+
+    private void viewportChanged() {
+        if (sceneMode || viewport == null) return;
+        Rectangle view = viewport.getViewRect();
+        if (view.isEmpty()) return;
+        if (liveArea == null || !liveArea.contains(toUnscaledArea(view))) {
+            updateLiveComponents();
+        }
+    }
+
     private void updatePreferredSize() {
         Rectangle bounds = getScaledImagesBounds();
-        if (bounds.width == 0 || bounds.height == 0) {
-            setPreferredSize(new Dimension(AppDefaults.FRAME_WIDTH, AppDefaults.FRAME_HEIGHT));
-        } else {
-            setPreferredSize(new Dimension(bounds.x + bounds.width, bounds.y + bounds.height));
+        Dimension size = bounds.width == 0 || bounds.height == 0
+                ? new Dimension(AppDefaults.FRAME_WIDTH, AppDefaults.FRAME_HEIGHT)
+                : new Dimension(bounds.x + bounds.width, bounds.y + bounds.height);
+        if (!size.equals(getPreferredSize())) {
+            setPreferredSize(size);
+            revalidate();
         }
     }
 
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return AppDefaults.SCROLL_UNIT_INCREMENT;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+    }
+
+    // Fill the viewport when the images take less room than it has
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return viewport != null && viewport.getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return viewport != null && viewport.getHeight() > getPreferredSize().height;
+    }
+
+    /** Canvas bounds of an unscaled rectangle at the current scale, as used for component bounds. */
+    public Rectangle toScaled(Rectangle unscaled) {
+        return new Rectangle((int) (unscaled.x * scale), (int) (unscaled.y * scale),
+                (int) (unscaled.width * scale), (int) (unscaled.height * scale));
+    }
+
+    private Point toUnscaled(Point scaled) {
+        return new Point((int) Math.floor(scaled.x / scale), (int) Math.floor(scaled.y / scale));
+    }
+
     public Rectangle getUnscaledImagesBounds() {
-        Rectangle bounds = null;
-        for (Component comp : getComponents()) {
-            if (comp instanceof ScaledComponent ic) {
-                Rectangle ic_bounds = ic.getImageBounds();
-                if (bounds == null) {
-                    bounds = ic_bounds;
-                } else {
-                    bounds = bounds.union(ic_bounds);
-                }
-            }
-        }
-        return bounds == null ? new Rectangle(0, 0, 0, 0) : bounds;
+        return index.getBounds();
     }
 
     public Rectangle getScaledImagesBounds() {
-        Rectangle bounds = null;
-        for (Component comp : getComponents()) {
-            if (bounds == null) {
-                bounds = comp.getBounds();
-            } else {
-                bounds = bounds.union(comp.getBounds());
-            }
+        Rectangle unscaled = index.getBounds();
+        int x = (int) (unscaled.x * scale);
+        int y = (int) (unscaled.y * scale);
+        int right = (int) Math.ceil((unscaled.x + unscaled.width) * scale);
+        int bottom = (int) Math.ceil((unscaled.y + unscaled.height) * scale);
+        return new Rectangle(x, y, right - x, bottom - y);
+    }
+
+    /**
+     * Repaints only the union of the given canvas rectangles, grown by the outline
+     * and handle margin. Null or empty rectangles are skipped.
+     */
+    public void repaintRegion(Rectangle... areas) {
+        Rectangle dirty = null;
+        for (Rectangle area : areas) {
+            if (area == null || area.isEmpty()) continue;
+            dirty = dirty == null ? new Rectangle(area) : dirty.union(area);
         }
-        return bounds == null ? new Rectangle(0, 0, 0, 0) : bounds;
+        if (dirty == null) return;
+        dirty.grow(REPAINT_MARGIN, REPAINT_MARGIN);
+        repaint(dirty);
+    }
+
+    /** Where the component currently shows on the canvas; in scene mode hidden ones are painted from their image bounds. */
+    public Rectangle paintedBounds(ScaledComponent sc) {
+        return sc.isVisible() ? sc.getBounds() : toScaled(sc.getImageBounds());
     }
 
+    // Changing one component's z-order can only change pixels inside its own bounds
     public void bringToFront(ScaledComponent imageComponent) {
-        this.setComponentZOrder(imageComponent, 0);
-        repaint();
+        changeZOrder(imageComponent, 0);
     }
 
     public void sendToBack(ScaledComponent imageComponent) {
-        this.setComponentZOrder(imageComponent, getComponentCount() - 1);
-        repaint();
+        changeZOrder(imageComponent, getComponentCount() - 1);
     }
 
     public void moveForward(ScaledComponent imageComponent) {
         int currentIndex = getComponentZOrder(imageComponent);
         if (currentIndex > 0) {
-            setComponentZOrder(imageComponent, currentIndex - 1);
-            repaint();
+            changeZOrder(imageComponent, currentIndex - 1);
         }
     }
 
     public void moveBackward(ScaledComponent imageComponent) {
         int currentIndex = getComponentZOrder(imageComponent);
         if (currentIndex < getComponentCount() - 1) {
-            setComponentZOrder(imageComponent, currentIndex + 1);
-            repaint();
+            changeZOrder(imageComponent, currentIndex + 1);
         }
     }
 
+    private void changeZOrder(ScaledComponent imageComponent, int order) {
+        int currentIndex = getComponentZOrder(imageComponent);
+        if (currentIndex == order) return;
+        setComponentZOrder(imageComponent, order);
+        history.record(new CanvasEdits.ZOrder(this, imageComponent, currentIndex, order));
+        repaintRegion(paintedBounds(imageComponent));
+    }
+
+    /**
+     * Moves every image by the given offset as one undoable edit, so edits recorded
+     * before the shift still undo to positions in line with the rest.
+     */
     public void shiftUnscaledContentBounds(Point unscaledLocation) {
+        List<ScaledComponent> components = new ArrayList<>();
+        List<ScaledComponent.Geometry> before = new ArrayList<>();
+        List<ScaledComponent.Geometry> after = new ArrayList<>();
         for (Component comp : getComponents()) {
             if (comp instanceof ScaledComponent ic) {
-                Rectangle origBounds = ic.getImageBounds();
-                int newX = origBounds.x + unscaledLocation.x;
-                int newY = origBounds.y + unscaledLocation.y;
-                ic.setImageLocation(new Point(newX, newY));
+                ScaledComponent.Geometry geometry = ic.getGeometry();
+                Rectangle bounds = new Rectangle(geometry.bounds());
+                bounds.translate(unscaledLocation.x, unscaledLocation.y);
+                components.add(ic);
+                before.add(geometry);
+                after.add(new ScaledComponent.Geometry(geometry.region(), bounds, geometry.resizedScale()));
             }
         }
-        updatePreferredSize();
-        revalidate();
-        repaint();
+        CanvasEdits.Arrange edit = new CanvasEdits.Arrange(this, components, before, after);
+        edit.redo();
+        history.record(edit);
     }
 
-    public BufferedImage createUnscaledMosaicImage() {
-        Rectangle unscaledBounds = getUnscaledImagesBounds();
-        BufferedImage mosaic = new BufferedImage(unscaledBounds.width, unscaledBounds.height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = mosaic.createGraphics();
-        for (Component comp : getComponents()) {
-            if (comp instanceof ScaledComponent ic) {
-                Point location = ic.getImageLocation();
-                g2d.drawImage(ic.resizedImage(), location.x, location.y, null);
+    private void forwardToPressTarget(MouseEvent e) {
+        if (pressTarget != null && pressTarget.getParent() == this) {
+            pressTarget.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, pressTarget));
+        }
+    }
+
+    private int zOrderOf(Component comp) {
+        if (zOrderDirty) {
+            zOrder.clear();
+            Component[] components = getComponents();
+            for (int i = 0; i < components.length; i++) {
+                zOrder.put(components[i], i);
             }
+            zOrderDirty = false;
         }
-        g2d.dispose();
-        return mosaic;
+        return zOrder.getOrDefault(comp, -1);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        MosaicEvents.Repaint event = new MosaicEvents.Repaint();
+        long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+        event.begin();
+        super.paint(g);
+        event.end();
+        if (event.shouldCommit()) {
+            Rectangle clip = g.getClipBounds();
+            event.width = clip == null ? getWidth() : clip.width;
+            event.height = clip == null ? getHeight() : clip.height;
+            event.tileCount = getComponentCount();
+            event.scale = scale;
+            event.sceneMode = sceneMode;
+            event.allocatedBytes = MosaicEvents.allocatedBytes() - allocated;
+            event.commit();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (sceneMode) paintScene(g, false);
+    }
+
+    /**
+     * Paints the live children that intersect the clip, found through the index,
+     * back to front, instead of letting Swing walk every child.
+     */
+    @Override
+    protected void paintChildren(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        List<ScaledComponent> visible = new ArrayList<>();
+        for (ScaledComponent sc : index.query(toUnscaledArea(clip))) {
+            if (live.contains(sc) && sc.isVisible() && sc.getBounds().intersects(clip)) visible.add(sc);
+        }
+        visible.sort(Comparator.comparingInt(this::zOrderOf).reversed());
+        for (ScaledComponent sc : visible) {
+            Rectangle b = sc.getBounds();
+            Graphics cg = g.create(b.x, b.y, b.width, b.height);
+            try {
+                sc.paint(cg);
+            } finally {
+                cg.dispose();
+            }
+        }
+        if (sceneMode) paintScene(g, true);
+    }
+
+    /** Unscaled area covering a canvas rectangle, with a pixel of slack for rounding. */
+    private Rectangle toUnscaledArea(Rectangle scaled) {
+        int x0 = (int) Math.floor(scaled.x / scale);
+        int y0 = (int) Math.floor(scaled.y / scale);
+        int x1 = (int) Math.ceil((scaled.x + scaled.width) / scale) + 1;
+        int y1 = (int) Math.ceil((scaled.y + scaled.height) / scale) + 1;
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Paints the hidden images that intersect the clip, back to front, either those
+     * behind the selected component or those in front of it, so the live child still
+     * lands at its place in the z-order.
+     */
+    private void paintScene(Graphics g, boolean inFront) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        List<ScaledComponent> visible = index.query(toUnscaledArea(clip));
+        if (visible.isEmpty()) return;
+        int selectedOrder = selectedComponent == null ? Integer.MAX_VALUE : zOrderOf(selectedComponent);
+        visible.sort(Comparator.comparingInt(this::zOrderOf).reversed());
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.scale(scale, scale);
+            for (ScaledComponent sc : visible) {
+                int order = zOrderOf(sc);
+                if (sc == selectedComponent || (order < selectedOrder) != inFront) continue;
+                sc.paintScene(g2, scale);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * Captures the images on the canvas as export tiles, ordered from the back-most
+     * component to the front-most so they can be painted in sequence.
+     */
+    public List<MosaicTile> snapshotTiles() {
+        Component[] components = getComponents();
+        List<MosaicTile> tiles = new ArrayList<>(components.length);
+        for (int i = components.length - 1; i >= 0; i--) {
+            if (components[i] instanceof ScaledComponent ic && ic.isLoaded()) {
+                tiles.add(ic.toMosaicTile());
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Saves every image with its source, crop, bounds and z-order. Images still
+     * decoding are waited for; those that fail to decode are left out.
+     */
+    public void saveProject(File file) throws IOException {
+        Component[] components = getComponents();
+        List<ProjectFile.Item> items = new ArrayList<>(components.length);
+        for (int i = components.length - 1; i >= 0; i--) {
+            if (components[i] instanceof ScaledComponent ic && ic.isLoaded()) {
+                items.add(new ProjectFile.Item(ic.getSourceImage(), ic.getSourceRegion(), ic.getImageBounds(), ic.getResizedScale()));
+            } else if (components[i] instanceof ScaledComponent placeholder) {
+                SourceImage source = awaitDecode(placeholder);
+                if (source != null) {
+                    ScaledComponent.Geometry geometry = loadedGeometry(placeholder, source);
+                    items.add(new ProjectFile.Item(source, geometry.region(), geometry.bounds(), geometry.resizedScale()));
+                }
+            }
+        }
+        ProjectFile.write(file, items);
+    }
+
+    // A placeholder's geometry once source is swapped in: the whole image at full size, where the placeholder is
+    private static ScaledComponent.Geometry loadedGeometry(ScaledComponent placeholder, SourceImage source) {
+        Point location = placeholder.getImageLocation();
+        return new ScaledComponent.Geometry(new Rectangle(0, 0, source.getWidth(), source.getHeight()),
+                new Rectangle(location.x, location.y, source.getWidth(), source.getHeight()), 1.0);
+    }
+
+    // The decode completes on the decoder pool, so this does not wait for the EDT
+    private SourceImage awaitDecode(ScaledComponent placeholder) {
+        CompletableFuture<SourceImage> decode = decoding.get(placeholder);
+        if (decode == null) return null;
+        try {
+            return decode.join();
+        } catch (CompletionException | CancellationException ex) {
+            return null;
+        }
+    }
+
+    /** Replaces the canvas contents with a saved project. */
+    public void openProject(File file) throws IOException {
+        List<ProjectFile.Item> items = ProjectFile.read(file);
+        selectComponent(null);
+        removeAll();
+        history.clear();
+        // Added components go behind the existing ones, so add from the front-most back
+        for (int i = items.size() - 1; i >= 0; i--) {
+            ProjectFile.Item item = items.get(i);
+            ScaledComponent sc = new ScaledComponent(item.source(), item.region());
+            sc.setImageBounds(item.bounds());
+            sc.setResizedScale(item.resizedScale());
+            add(sc);
+        }
+        updateChildrenBounds();
+    }
+
+    public MosaicRenderer createMosaicRenderer() {
+        return new MosaicRenderer(snapshotTiles()).setCompositor(new TiledCompositor());
+    }
+
+    public BufferedImage createUnscaledMosaicImage() {
+        return createMosaicRenderer().render();
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ScaledComponent extends ImageComponent {
 
@@ -25,6 +27,7 @@ public class ScaledComponent extends ImageComponent {
     private double resizedScale;
     private Dimension resizeStartSize;
     private Point startLocation;
+    private MipmapPyramid pyramid;
 
     public void setResizingStart(Point p){ this.resizingStart = p; }
     public Point getResizingStart(){ return this.resizingStart; };
@@ -33,20 +36,29 @@ public class ScaledComponent extends ImageComponent {
     }
 
     public BufferedImage resizedImage(){
-        if (resizedScale == 1.0) {
-            return image;
+        if (!isLoaded() || resizedScale == 1.0) {
+            return getImage();
         } else {
-            int newWidth = (int) (image.getWidth() * resizedScale);
-            int newHeight = (int) (image.getHeight() * resizedScale);
-            BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2d = scaledImage.createGraphics();
-
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.drawImage(image, 0, 0, newWidth, newHeight, null);
-            g2d.dispose();
-            return scaledImage;
+            int newWidth = (int) (sourceRegion.width * resizedScale);
+            int newHeight = (int) (sourceRegion.height * resizedScale);
+            MosaicEvents.Resample event = new MosaicEvents.Resample();
+            long allocated = event.isEnabled() ? MosaicEvents.allocatedBytes() : 0;
+            event.begin();
+            // Resample straight from the original source rather than from an intermediate copy
+            MosaicTile tile = new MosaicTile(source, sourceRegion, new Rectangle(0, 0, newWidth, newHeight));
+            BufferedImage resized = new MosaicRenderer(List.of(tile)).render();
+            event.end();
+            if (event.shouldCommit()) {
+                event.sourceWidth = sourceRegion.width;
+                event.sourceHeight = sourceRegion.height;
+                event.width = newWidth;
+                event.height = newHeight;
+                event.pixelType = MosaicEvents.pixelType(resized);
+                event.bytes = MosaicEvents.rasterBytes(resized);
+                event.allocatedBytes = MosaicEvents.allocatedBytes() - allocated;
+                event.commit();
+            }
+            return resized;
         }
     }
 
@@ -55,8 +67,21 @@ public class ScaledComponent extends ImageComponent {
     }
 
     public ScaledComponent(BufferedImage image) {
-        super(image);
-        imageBounds = new Rectangle(0,0, image.getWidth(), image.getHeight());
+        this(SourceImage.of(image), new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+    }
+
+    public ScaledComponent(SourceImage source, Rectangle sourceRegion) {
+        super(source, sourceRegion);
+        initialize();
+    }
+
+    public ScaledComponent(Dimension sourceSize) {
+        super(sourceSize);
+        initialize();
+    }
+
+    private void initialize() {
+        imageBounds = new Rectangle(0,0, sourceRegion.width, sourceRegion.height);
         setBounds(imageBounds);
         enableEvents(AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK);
         ScaledComponentMouseAdapter mouseAdapter = new ScaledComponentMouseAdapter(this);
@@ -67,6 +92,9 @@ public class ScaledComponent extends ImageComponent {
     public void setResizedScale(double scale){
         this.resizedScale = scale;
     }
+    public double getResizedScale(){
+        return resizedScale;
+    }
     public void setResizeStartSizeToCurrent(){
         this.resizeStartSize = new Dimension(getWidth(),getHeight());
     }
@@ -74,6 +102,45 @@ public class ScaledComponent extends ImageComponent {
         return this.resizeStartSize;
     }
 
+    @Override
+    protected void imageBoundsChanged() {
+        if (getParent() instanceof ScaledCanvas canvas) {
+            canvas.imageBoundsChanged(this);
+        }
+    }
+
+    /** Crop, bounds and resize scale: everything an edit can change about one image. */
+    public record Geometry(Rectangle region, Rectangle bounds, double resizedScale) {
+        public Geometry {
+            region = new Rectangle(region);
+            bounds = new Rectangle(bounds);
+        }
+    }
+
+    public Geometry getGeometry() {
+        return new Geometry(sourceRegion, imageBounds, resizedScale);
+    }
+
+    public void setGeometry(Geometry geometry) {
+        applyGeometry(geometry);
+        if (getParent() instanceof ScaledCanvas canvas) {
+            canvas.layoutComponent(this);
+        }
+    }
+
+    // Leaves the canvas bounds alone, for callers that lay out many components at once
+    void applyGeometry(Geometry geometry) {
+        setSourceRegion(geometry.region());
+        resizedScale = geometry.resizedScale();
+        setImageBounds(geometry.bounds());
+    }
+
+    private void recordEdit(EditHistory.Edit edit) {
+        if (getParent() instanceof ScaledCanvas canvas) {
+            canvas.getHistory().record(edit);
+        }
+    }
+
     public void setSelected(boolean selected) {
         this.selected = selected;
         repaint();
@@ -125,6 +192,11 @@ public class ScaledComponent extends ImageComponent {
         splitVertically.setEnabled(selected);
         menu.add(splitVertically);
 
+        JMenuItem splitGrid = new JMenuItem("Grid Split...");
+        splitGrid.addActionListener(ae -> promptGridSplit());
+        splitGrid.setEnabled(selected);
+        menu.add(splitGrid);
+
         if (!cropMode) {
             JMenuItem cropItem = new JMenuItem("Crop Image");
             cropItem.addActionListener(ae -> enterCropMode());
@@ -134,13 +206,8 @@ public class ScaledComponent extends ImageComponent {
 
         JMenuItem deleteItem = new JMenuItem("Delete Image");
         deleteItem.addActionListener(ae -> {
-            Container parent = getParent();
-            if (parent != null) {
-                parent.remove(this);
-                if (parent instanceof ScaledCanvas) {
-                    ((ScaledCanvas) parent).selectComponent(null);
-                }
-                parent.repaint();
+            if (getParent() instanceof ScaledCanvas canvas) {
+                canvas.deleteComponent(this);
             }
         });
         deleteItem.setEnabled(selected);
@@ -204,32 +271,82 @@ public class ScaledComponent extends ImageComponent {
     }
 
     private void performVerticalSplit(int splitX) {
-        if (image == null || getParent() == null) return;
+        if (!isLoaded() || !(getParent() instanceof ScaledCanvas canvas)) return;
 
-        double scaleX = (double) image.getWidth() / getWidth();
-        int imgSplitX = (int) (splitX * scaleX);
+        double fraction = (double) splitX / getWidth();
+        int imgSplitX = (int) (fraction * sourceRegion.width);
+        int boundsSplitX = (int) Math.round(fraction * imageBounds.width);
 
         // Guard against invalid splits
-        if (imgSplitX <= 0 || imgSplitX >= image.getWidth()) return;
-
-        //Create separate components
-        JLayeredPane canvas = (JLayeredPane) getParent();
+        if (imgSplitX <= 0 || imgSplitX >= sourceRegion.width) return;
 
-        BufferedImage left = image.getSubimage(0, 0, imgSplitX, image.getHeight());
-        ScaledComponent leftComponent = new ScaledComponent(left);
+        //Create separate components sharing this component's source
+        Rectangle leftRegion = new Rectangle(sourceRegion.x, sourceRegion.y, imgSplitX, sourceRegion.height);
+        ScaledComponent leftComponent = createSplitComponent(leftRegion,
+                new Rectangle(imageBounds.x, imageBounds.y, boundsSplitX, imageBounds.height));
         leftComponent.setBounds(getX(), getY(), splitX, getHeight());
-        canvas.add(leftComponent, JLayeredPane.DEFAULT_LAYER);
-        leftComponent.setImageLocation(this.getImageLocation());
 
-        BufferedImage right = image.getSubimage(imgSplitX, 0, image.getWidth() - imgSplitX, image.getHeight());
-        ScaledComponent rightComponent = new ScaledComponent(right);
+        Rectangle rightRegion = new Rectangle(sourceRegion.x + imgSplitX, sourceRegion.y,
+                sourceRegion.width - imgSplitX, sourceRegion.height);
+        ScaledComponent rightComponent = createSplitComponent(rightRegion,
+                new Rectangle(imageBounds.x + boundsSplitX, imageBounds.y, imageBounds.width - boundsSplitX, imageBounds.height));
         rightComponent.setBounds(getX() + splitX, getY(), getWidth() - splitX, getHeight());
-        canvas.add(rightComponent, JLayeredPane.DEFAULT_LAYER);
-        rightComponent.setImageLocation(
-                new Point(this.getImageLocation().x + imgSplitX, 0));
 
-        canvas.remove(this);
-        canvas.repaint();
+        canvas.replaceComponent(this, List.of(leftComponent, rightComponent));
+    }
+
+    /** Asks for columns x rows and splits the image into that grid. */
+    public void promptGridSplit() {
+        String grid = JOptionPane.showInputDialog(this, "Columns x rows:", "2x2");
+        if (grid == null) return;
+        String[] parts = grid.toLowerCase().split("[x*, ]+");
+        try {
+            if (parts.length != 2) throw new NumberFormatException(grid);
+            splitGrid(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, "Not a grid: " + grid);
+        }
+    }
+
+    /**
+     * Replaces this image with columns x rows pieces in one undoable step. Every
+     * piece is a region of the same source, so no pixels are copied. Edges are
+     * rounded from running totals, so the pieces tile both the source region and
+     * the image bounds exactly.
+     */
+    public List<ScaledComponent> splitGrid(int columns, int rows) {
+        // Every piece needs at least a pixel of the source and of the canvas
+        int width = Math.min(sourceRegion.width, imageBounds.width);
+        int height = Math.min(sourceRegion.height, imageBounds.height);
+        if (columns < 1 || rows < 1 || columns > width || rows > height) {
+            throw new IllegalArgumentException("Cannot split " + width + "x" + height + " into " + columns + "x" + rows);
+        }
+        if (!isLoaded() || !(getParent() instanceof ScaledCanvas canvas)) return List.of();
+        List<ScaledComponent> pieces = new ArrayList<>(columns * rows);
+        for (int row = 0; row < rows; row++) {
+            int y0 = sourceRegion.height * row / rows;
+            int y1 = sourceRegion.height * (row + 1) / rows;
+            int by0 = (int) Math.round((double) imageBounds.height * row / rows);
+            int by1 = (int) Math.round((double) imageBounds.height * (row + 1) / rows);
+            for (int column = 0; column < columns; column++) {
+                int x0 = sourceRegion.width * column / columns;
+                int x1 = sourceRegion.width * (column + 1) / columns;
+                int bx0 = (int) Math.round((double) imageBounds.width * column / columns);
+                int bx1 = (int) Math.round((double) imageBounds.width * (column + 1) / columns);
+                pieces.add(createSplitComponent(
+                        new Rectangle(sourceRegion.x + x0, sourceRegion.y + y0, x1 - x0, y1 - y0),
+                        new Rectangle(imageBounds.x + bx0, imageBounds.y + by0, bx1 - bx0, by1 - by0)));
+            }
+        }
+        canvas.replaceComponent(this, pieces);
+        return pieces;
+    }
+
+    private ScaledComponent createSplitComponent(Rectangle region, Rectangle bounds) {
+        ScaledComponent component = new ScaledComponent(source, region);
+        component.setImageBounds(bounds);
+        component.setResizedScale(resizedScale);
+        return component;
     }
 
     public void enterHorizontalSplitMode() {
@@ -259,33 +376,30 @@ public class ScaledComponent extends ImageComponent {
     }
 
     private void performHorizontalSplit(int splitY) {
-        if (image == null || getParent() == null) return;
-        double scaleY = (double) image.getHeight() / getHeight();
-        int imgSplitY = (int) (splitY * scaleY);
+        if (!isLoaded() || !(getParent() instanceof ScaledCanvas canvas)) return;
+        double fraction = (double) splitY / getHeight();
+        int imgSplitY = (int) (fraction * sourceRegion.height);
+        int boundsSplitY = (int) Math.round(fraction * imageBounds.height);
 
         // Guard against invalid splits
-        if (imgSplitY <= 0 || imgSplitY >= image.getHeight()) return;
+        if (imgSplitY <= 0 || imgSplitY >= sourceRegion.height) return;
 
-        BufferedImage top = image.getSubimage(0, 0, image.getWidth(), imgSplitY);
-        BufferedImage bottom = image.getSubimage(0, imgSplitY, image.getWidth(), image.getHeight() - imgSplitY);
+        Rectangle topRegion = new Rectangle(sourceRegion.x, sourceRegion.y, sourceRegion.width, imgSplitY);
+        Rectangle bottomRegion = new Rectangle(sourceRegion.x, sourceRegion.y + imgSplitY,
+                sourceRegion.width, sourceRegion.height - imgSplitY);
 
         int topHeight = splitY;
         int bottomHeight = getHeight() - splitY;
 
-        JLayeredPane canvas = (JLayeredPane) getParent();
-
-        ScaledComponent topComponent = new ScaledComponent(top);
+        ScaledComponent topComponent = createSplitComponent(topRegion,
+                new Rectangle(imageBounds.x, imageBounds.y, imageBounds.width, boundsSplitY));
         topComponent.setBounds(getX(), getY(), getWidth(), topHeight);
-        canvas.add(topComponent, JLayeredPane.DEFAULT_LAYER);
 
-        ScaledComponent bottomComponent = new ScaledComponent(bottom);
+        ScaledComponent bottomComponent = createSplitComponent(bottomRegion,
+                new Rectangle(imageBounds.x, imageBounds.y + boundsSplitY, imageBounds.width, imageBounds.height - boundsSplitY));
         bottomComponent.setBounds(getX(), getY() + splitY, getWidth(), bottomHeight);
-        bottomComponent.setImageLocation(
-                new Point(0, this.getImageLocation().y + imgSplitY));
-        canvas.add(bottomComponent, JLayeredPane.DEFAULT_LAYER);
 
-        canvas.remove(this);
-        canvas.repaint();
+        canvas.replaceComponent(this, List.of(topComponent, bottomComponent));
     }
 
     public void enterCropMode() {
@@ -331,7 +445,7 @@ public class ScaledComponent extends ImageComponent {
 
     private void performCrop() {
 
-        if (cropRect == null || image == null) return;
+        if (cropRect == null || !isLoaded()) return;
         int cropRectX = cropRect.x;
         int cropRectY = cropRect.y;
         int cropRectW = cropRect.width;
@@ -345,38 +459,42 @@ public class ScaledComponent extends ImageComponent {
             cropRectY = 0;
         }
 
+        Geometry before = getGeometry();
+        // Work in full-resolution source pixels; the displayed image may be a smaller proxy
         Point origImageLocation = getImageLocation();
         Point origScaledLocation = getLocation();
-        double scaleX = (double) getWidth() / image.getWidth();
-        double scaleY = (double) getHeight() / image.getHeight();
-        int x = (int) (cropRectX * (image.getWidth() / (double) getWidth()));
-        int y = (int) (cropRectY * (image.getHeight() / (double) getHeight()));
-        int w = (int) (cropRectW * (image.getWidth() / (double) getWidth()));
-        int h = (int) (cropRectH * (image.getHeight() / (double) getHeight()));
+        double scaleX = (double) getWidth() / sourceRegion.width;
+        double scaleY = (double) getHeight() / sourceRegion.height;
+        int x = (int) (cropRectX * (sourceRegion.width / (double) getWidth()));
+        int y = (int) (cropRectY * (sourceRegion.height / (double) getHeight()));
+        int w = (int) (cropRectW * (sourceRegion.width / (double) getWidth()));
+        int h = (int) (cropRectH * (sourceRegion.height / (double) getHeight()));
 
         // Clamp to image bounds
-        x = Math.max(0, Math.min(x, image.getWidth() - 1));
-        y = Math.max(0, Math.min(y, image.getHeight() - 1));
-        w = Math.max(1, Math.min(w, image.getWidth() - x));
-        h = Math.max(1, Math.min(h, image.getHeight() - y));
-
-        // Get cropped image
-        BufferedImage cropped = image.getSubimage(x, y, w, h);
-        BufferedImage copy = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = copy.createGraphics();
-        g2.drawImage(cropped, 0, 0, null);
-        g2.dispose();
-
-
-        // Replace image, but preserve scale
-        image = copy;
+        x = Math.max(0, Math.min(x, sourceRegion.width - 1));
+        y = Math.max(0, Math.min(y, sourceRegion.height - 1));
+        w = Math.max(1, Math.min(w, sourceRegion.width - x));
+        h = Math.max(1, Math.min(h, sourceRegion.height - y));
+
+        // Narrow the region of the original source this component shows; no pixels are copied
+        double boundsScaleX = (double) imageBounds.width / sourceRegion.width;
+        double boundsScaleY = (double) imageBounds.height / sourceRegion.height;
+        Rectangle newImageBounds = new Rectangle(
+                origImageLocation.x + (int) Math.round(x * boundsScaleX),
+                origImageLocation.y + (int) Math.round(y * boundsScaleY),
+                Math.max(1, (int) Math.round(w * boundsScaleX)),
+                Math.max(1, (int) Math.round(h * boundsScaleY)));
+        setSourceRegion(new Rectangle(sourceRegion.x + x, sourceRegion.y + y, w, h));
+
+        // Preserve scale
         int newW = (int) (w * scaleX);
         int newH = (int) (h * scaleY);
         int newX = (int) (x * scaleX);
         int newY = (int) (y * scaleY);
         setSize(newW, newH);
         setBounds(origScaledLocation.x + newX, origScaledLocation.y + newY, newW, newH);
-        setImageBounds(new Rectangle(origImageLocation.x + x, origImageLocation.y + y, w, h));
+        setImageBounds(newImageBounds);
+        recordEdit(new CanvasEdits.Geometry(this, before, getGeometry(), CanvasEdits.Kind.CROP));
         repaint();
     }
 
@@ -393,11 +511,46 @@ public class ScaledComponent extends ImageComponent {
         return Corner.NONE;
     }
 
+    private BufferedImage displayImage(int width, int height) {
+        BufferedImage image = getImage();
+        if (pyramid == null || pyramid.getSource() != image) {
+            pyramid = new MipmapPyramid(image, () -> SwingUtilities.invokeLater(this::repaintDisplay));
+        }
+        return pyramid.imageFor(width, height);
+    }
+
+    private void repaintDisplay() {
+        // Hidden components are painted by the canvas in scene mode
+        if (!isVisible() && getParent() != null) {
+            getParent().repaint();
+        } else {
+            repaint();
+        }
+    }
+
+    /** Paints the image into its unscaled bounds on a canvas graphics that is already scaled. */
+    void paintScene(Graphics2D g, double scale) {
+        Rectangle b = imageBounds;
+        if (!isLoaded()) {
+            g.setColor(Color.LIGHT_GRAY);
+            g.fillRect(b.x, b.y, b.width, b.height);
+        } else {
+            BufferedImage level = displayImage(Math.max(1, (int) (b.width * scale)), Math.max(1, (int) (b.height * scale)));
+            g.drawImage(level, b.x, b.y, b.width, b.height, null);
+        }
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        // Draw image scaled to current size
-        g.drawImage(image, 0, 0, getWidth(), getHeight(), this);
+        if (!isLoaded()) {
+            // Still decoding
+            g.setColor(Color.LIGHT_GRAY);
+            g.fillRect(0, 0, getWidth(), getHeight());
+        } else {
+            // Draw image scaled to current size, from the smallest pre-downscaled level that still covers it
+            g.drawImage(displayImage(getWidth(), getHeight()), 0, 0, getWidth(), getHeight(), this);
+        }
 
         // Draw selection outline and handles if selected
         if (selected) {
@@ -2,9 +2,12 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.List;
 
 public class ScaledComponentMouseAdapter extends MouseAdapter {
     private final ScaledComponent scaledComponent;
+    // Geometry when the current gesture started, recorded as one edit on release
+    private ScaledComponent.Geometry pressGeometry;
 
     public ScaledComponentMouseAdapter(ScaledComponent imageComponent) {
         this.scaledComponent = imageComponent;
@@ -13,6 +16,7 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
     @Override
     public void mousePressed(MouseEvent e) {
         scaledComponent.requestFocusInWindow();
+        pressGeometry = scaledComponent.getGeometry();
 
         if (SwingUtilities.isLeftMouseButton(e) || SwingUtilities.isRightMouseButton(e)) {
             if (scaledComponent.getParent() instanceof ScaledCanvas) {
@@ -100,6 +104,7 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
             }
         } else {
             // Move mode
+            Rectangle before = scaledComponent.getBounds();
             Point parentPoint = SwingUtilities.convertPoint(scaledComponent, e.getPoint(), scaledComponent.getParent());
             int x = parentPoint.x - scaledComponent.getDragOffset().x;
             int y = parentPoint.y - scaledComponent.getDragOffset().y;
@@ -114,26 +119,55 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
             int height = scaledComponent.getHeight();
 
             if (scaledComponent.getParent() instanceof ScaledCanvas canvas) {
-                for (Component comp : canvas.getComponents()) {
-                    if (comp == scaledComponent) continue;
-
-                    Rectangle r = comp.getBounds();
-
-                    if (Math.abs(x - r.x) < snapThreshold) snappedX = r.x;
-                    if (Math.abs(x + width - r.x) < snapThreshold) snappedX = r.x - width;
-                    if (Math.abs(x - (r.x + r.width)) < snapThreshold) snappedX = r.x + r.width;
-                    if (Math.abs(x + width - (r.x + r.width)) < snapThreshold) snappedX = r.x + r.width - width;
-
-                    if (Math.abs(y - r.y) < snapThreshold) snappedY = r.y;
-                    if (Math.abs(y + height - r.y) < snapThreshold) snappedY = r.y - height;
-                    if (Math.abs(y - (r.y + r.height)) < snapThreshold) snappedY = r.y + r.height;
-                    if (Math.abs(y + height - (r.y + r.height)) < snapThreshold) snappedY = r.y + r.height - height;
+                // Only components overlapping the vertical strip around the dragged bounds can have
+                // an x edge within the threshold, and likewise the horizontal strip for y edges
+                int bestDx = snapThreshold;
+                for (ScaledComponent comp : snapCandidates(canvas, new Rectangle(x - snapThreshold, Integer.MIN_VALUE / 2,
+                        width + 2 * snapThreshold, Integer.MAX_VALUE))) {
+                    Rectangle r = canvas.toScaled(comp.getImageBounds());
+                    int[] options = {r.x, r.x - width, r.x + r.width, r.x + r.width - width};
+                    for (int option : options) {
+                        int distance = Math.abs(x - option);
+                        if (distance < bestDx) {
+                            bestDx = distance;
+                            snappedX = option;
+                        }
+                    }
+                }
+                int bestDy = snapThreshold;
+                for (ScaledComponent comp : snapCandidates(canvas, new Rectangle(Integer.MIN_VALUE / 2, y - snapThreshold,
+                        Integer.MAX_VALUE, height + 2 * snapThreshold))) {
+                    Rectangle r = canvas.toScaled(comp.getImageBounds());
+                    int[] options = {r.y, r.y - height, r.y + r.height, r.y + r.height - height};
+                    for (int option : options) {
+                        int distance = Math.abs(y - option);
+                        if (distance < bestDy) {
+                            bestDy = distance;
+                            snappedY = option;
+                        }
+                    }
                 }
             }
 
             scaledComponent.setLocation(snappedX, snappedY);
+            if (scaledComponent.getParent() instanceof ScaledCanvas canvas) {
+                canvas.repaintRegion(before, scaledComponent.getBounds());
+            }
         }
-        scaledComponent.getParent().repaint();
+    }
+
+    /** Other components whose scaled bounds may intersect the given scaled strip, found through the canvas index. */
+    private List<ScaledComponent> snapCandidates(ScaledCanvas canvas, Rectangle scaledStrip) {
+        double scale = canvas.getScale();
+        Rectangle content = canvas.getUnscaledImagesBounds();
+        // Clamp to the content bounds before unscaling so the strip cannot overflow
+        int x0 = (int) Math.floor(Math.max(scaledStrip.getMinX(), content.x * scale) / scale) - 1;
+        int y0 = (int) Math.floor(Math.max(scaledStrip.getMinY(), content.y * scale) / scale) - 1;
+        int x1 = (int) Math.ceil(Math.min(scaledStrip.getMaxX(), (content.x + content.width) * scale) / scale) + 1;
+        int y1 = (int) Math.ceil(Math.min(scaledStrip.getMaxY(), (content.y + content.height) * scale) / scale) + 1;
+        List<ScaledComponent> candidates = canvas.componentsIntersecting(new Rectangle(x0, y0, x1 - x0, y1 - y0));
+        candidates.remove(scaledComponent);
+        return candidates;
     }
 
     @Override
@@ -159,6 +193,7 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
         if (scaledComponent.isResizing()) {
             process_resize_release_event(e);
             scaledComponent.setResizing(false);
+            recordEdit(CanvasEdits.Kind.RESIZE);
         }
         if (scaledComponent.getStartLocation() != null && (scaledComponent.getLocation().x != scaledComponent.getStartLocation().x || scaledComponent.getLocation().y != scaledComponent.getStartLocation().y)) {
             // Move mode
@@ -166,7 +201,16 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
             Point end = scaledComponent.getLocation();
             scaledComponent.setUnscaledLocationFromScaledMove(start, end);
             scaledComponent.setStartLocation(scaledComponent.getLocation());
+            recordEdit(CanvasEdits.Kind.MOVE);
+        }
+    }
+
+    private void recordEdit(CanvasEdits.Kind kind) {
+        ScaledComponent.Geometry after = scaledComponent.getGeometry();
+        if (pressGeometry != null && !pressGeometry.equals(after) && scaledComponent.getParent() instanceof ScaledCanvas canvas) {
+            canvas.getHistory().record(new CanvasEdits.Geometry(scaledComponent, pressGeometry, after, kind));
         }
+        pressGeometry = after;
     }
 
     @Override
@@ -218,6 +262,7 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
         }
     }
     public void process_resize_drag_event(MouseEvent e) {
+        Rectangle before = scaledComponent.getBounds();
         if (scaledComponent.getResizingCorner() == Corner.TOP_LEFT) {
             Rectangle newbounds = computeTLResizedBounds(e);
             scaledComponent.setBounds(newbounds);
@@ -226,8 +271,11 @@ public class ScaledComponentMouseAdapter extends MouseAdapter {
             Dimension newDim = computeBRResizedDim(e);
             scaledComponent.setSize(newDim.width, newDim.height);
         }
-        scaledComponent.revalidate();
-        scaledComponent.repaint();
+        if (scaledComponent.getParent() instanceof ScaledCanvas canvas) {
+            canvas.repaintRegion(before, scaledComponent.getBounds());
+        } else {
+            scaledComponent.repaint();
+        }
     }
 
     public Rectangle computeTLResizedBounds(MouseEvent e) {
@@ -0,0 +1,196 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+
+/**
+ * One decoded source file. Interactive code only ever touches the proxy, a copy
+ * subsampled to roughly screen size. The full-resolution raster is decoded from the
+ * file the first time something actually needs it (export) and is only softly
+ * held afterwards. Images created in memory are their own proxy.
+ *
+ * With AppDefaults.OFF_HEAP_RASTERS enabled, file-backed sources move their decoded
+ * full-resolution pixels into a {@link MappedPixelStore} instead, so the heap keeps
+ * only the proxy.
+ *
+ * The proxy itself may start out as mapped pixels, as in a reopened project; it is
+ * copied into an image the first time something asks for it.
+ */
+public class SourceImage {
+    private final File file;
+    private final int width;
+    private final int height;
+    private final int proxyWidth;
+    private final int proxyHeight;
+    private final boolean proxyAlpha;
+    // Whether the proxy is the full-resolution image
+    private final boolean full;
+    // Mapped pixels of a proxy that is copied into proxy on first use, else null
+    private final PixelStore proxyPixels;
+    private volatile BufferedImage proxy;
+    private SoftReference<BufferedImage> loaded = new SoftReference<>(null);
+    private PixelStore offHeap;
+
+    public SourceImage(File file, int width, int height, BufferedImage proxy) {
+        this(file, width, height, proxy, proxy.getWidth() == width && proxy.getHeight() == height);
+    }
+
+    private SourceImage(File file, int width, int height, BufferedImage proxy, boolean full) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.proxyWidth = proxy.getWidth();
+        this.proxyHeight = proxy.getHeight();
+        this.proxyAlpha = proxy.getColorModel().hasAlpha();
+        this.full = full;
+        this.proxyPixels = null;
+        this.proxy = proxy;
+    }
+
+    private SourceImage(File file, int width, int height, PixelStore proxyPixels, boolean alpha) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.proxyWidth = proxyPixels.getWidth();
+        this.proxyHeight = proxyPixels.getHeight();
+        this.proxyAlpha = alpha;
+        this.full = proxyWidth == width && proxyHeight == height;
+        this.proxyPixels = proxyPixels;
+    }
+
+    /**
+     * A source whose proxy is already decoded into proxyPixels, which are only copied
+     * into an image when the proxy is first asked for. A proxy at full resolution is
+     * exported straight from proxyPixels.
+     */
+    public static SourceImage ofProxyPixels(File file, int width, int height, PixelStore proxyPixels, boolean alpha) {
+        return new SourceImage(file, width, height, proxyPixels, alpha);
+    }
+
+    /**
+     * A file source with nothing decoded, for rendering without a display: the
+     * proxy is a single transparent pixel and the full-resolution pixels are
+     * decoded when a render first needs them.
+     */
+    public static SourceImage ofFile(File file, Dimension size) {
+        return new SourceImage(file, size.width, size.height,
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), false);
+    }
+
+    public static SourceImage of(BufferedImage image) {
+        return new SourceImage(null, image.getWidth(), image.getHeight(), image);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** Full-resolution width, which may be larger than the proxy's. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Full-resolution height, which may be larger than the proxy's. */
+    public int getHeight() {
+        return height;
+    }
+
+    public BufferedImage getProxy() {
+        BufferedImage image = proxy;
+        if (image == null) {
+            // Not the instance lock, so drawing never waits for an export decoding the full image
+            synchronized (proxyPixels) {
+                image = proxy;
+                if (image == null) {
+                    image = new BufferedImage(proxyWidth, proxyHeight,
+                            proxyAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                    int[] row = new int[proxyWidth];
+                    for (int y = 0; y < proxyHeight; y++) {
+                        proxyPixels.read(y, row);
+                        System.arraycopy(row, 0, data, y * proxyWidth, proxyWidth);
+                    }
+                    proxy = image;
+                }
+            }
+        }
+        return image;
+    }
+
+    /** The proxy's pixels, read from where they are without copying them into an image first. */
+    public PixelStore getProxyPixels() {
+        BufferedImage image = proxy;
+        return image != null ? new PixelRows(image) : proxyPixels;
+    }
+
+    public int getProxyWidth() {
+        return proxyWidth;
+    }
+
+    public int getProxyHeight() {
+        return proxyHeight;
+    }
+
+    public boolean hasAlpha() {
+        return proxyAlpha;
+    }
+
+    /** Whether the proxy has been copied into an image yet. */
+    boolean isProxyCopied() {
+        return proxy != null;
+    }
+
+    public boolean isProxy() {
+        return !full;
+    }
+
+    public synchronized boolean isFullResolutionLoaded() {
+        return full || offHeap != null || loaded.get() != null;
+    }
+
+    /**
+     * Full-resolution pixels for export. Decodes them on first use; with off-heap
+     * rasters enabled the decoded image is copied to a mapped file and dropped.
+     */
+    public synchronized PixelStore getPixels() {
+        if (full) return getProxyPixels();
+        if (offHeap != null) return offHeap;
+        if (!AppDefaults.OFF_HEAP_RASTERS) return new PixelRows(getFull());
+        try {
+            offHeap = MappedPixelStore.copyOf(ImageLoader.decode(file));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return offHeap;
+    }
+
+    /** Returns the full-resolution pixels as an image, decoding them from the file if needed. */
+    public synchronized BufferedImage getFull() {
+        if (full) return getProxy();
+        BufferedImage full = loaded.get();
+        if (full == null) {
+            try {
+                full = ImageLoader.decode(file);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            loaded = new SoftReference<>(full);
+        }
+        return full;
+    }
+
+    /** Maps a region in full-resolution pixels to the matching, non-empty region of the proxy. */
+    public Rectangle toProxyRegion(Rectangle region) {
+        if (full) return new Rectangle(region);
+        double sx = (double) proxyWidth / width;
+        double sy = (double) proxyHeight / height;
+        int x0 = Math.min(proxyWidth - 1, (int) Math.floor(region.x * sx));
+        int y0 = Math.min(proxyHeight - 1, (int) Math.floor(region.y * sy));
+        int x1 = Math.min(proxyWidth, Math.max(x0 + 1, (int) Math.ceil((region.x + region.width) * sx)));
+        int y1 = Math.min(proxyHeight, Math.max(y0 + 1, (int) Math.ceil((region.y + region.height) * sy)));
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+}
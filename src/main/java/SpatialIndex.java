@@ -0,0 +1,153 @@
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over rectangles for range and point queries. Each item is listed
+ * in every cell its bounds touch; items that would span too many cells are kept
+ * in a separate list that every query scans instead. Results come back in no
+ * particular order and without duplicates.
+ */
+public class SpatialIndex<T> {
+    private static final int MAX_CELLS_PER_ITEM = 64;
+
+    private final int cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+    private final Map<T, Rectangle> entries = new HashMap<>();
+    private final List<T> large = new ArrayList<>();
+    private Rectangle bounds = null;
+    private boolean boundsDirty = false;
+
+    public SpatialIndex(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public void insert(T item, Rectangle itemBounds) {
+        if (entries.containsKey(item)) {
+            remove(item);
+        }
+        Rectangle r = new Rectangle(itemBounds);
+        entries.put(item, r);
+        if (cellCount(r) > MAX_CELLS_PER_ITEM) {
+            large.add(item);
+        } else {
+            forEachCell(r, key -> cells.computeIfAbsent(key, k -> new ArrayList<>(4)).add(item));
+        }
+        if (!boundsDirty) {
+            bounds = bounds == null ? new Rectangle(r) : bounds.union(r);
+        }
+    }
+
+    public void remove(T item) {
+        Rectangle r = entries.remove(item);
+        if (r == null) return;
+        if (!large.remove(item)) {
+            forEachCell(r, key -> {
+                List<T> cell = cells.get(key);
+                if (cell != null) {
+                    cell.remove(item);
+                    if (cell.isEmpty()) cells.remove(key);
+                }
+            });
+        }
+        boundsDirty = true;
+    }
+
+    public void update(T item, Rectangle itemBounds) {
+        Rectangle current = entries.get(item);
+        if (current != null && current.equals(itemBounds)) return;
+        insert(item, itemBounds);
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        large.clear();
+        bounds = null;
+        boundsDirty = false;
+    }
+
+    /** Union of all item bounds, or an empty rectangle at the origin when there are none. */
+    public Rectangle getBounds() {
+        if (boundsDirty) {
+            bounds = null;
+            for (Rectangle r : entries.values()) {
+                bounds = bounds == null ? new Rectangle(r) : bounds.union(r);
+            }
+            boundsDirty = false;
+        }
+        return bounds == null ? new Rectangle(0, 0, 0, 0) : new Rectangle(bounds);
+    }
+
+    /** Items whose bounds intersect area. */
+    public List<T> query(Rectangle area) {
+        List<T> result = new ArrayList<>();
+        if (area.width <= 0 || area.height <= 0) return result;
+        if (cellCount(area) > entries.size()) {
+            // Cheaper to look at every item than to walk a mostly empty grid
+            for (Map.Entry<T, Rectangle> entry : entries.entrySet()) {
+                if (entry.getValue().intersects(area)) result.add(entry.getKey());
+            }
+            return result;
+        }
+        for (T item : large) {
+            if (entries.get(item).intersects(area)) result.add(item);
+        }
+        forEachCell(area, key -> {
+            List<T> cell = cells.get(key);
+            if (cell == null) return;
+            for (T item : cell) {
+                Rectangle r = entries.get(item);
+                // Report an item only from the first cell of its overlap with area
+                if (r.intersects(area) && key == cellKey(Math.max(r.x, area.x), Math.max(r.y, area.y))) {
+                    result.add(item);
+                }
+            }
+        });
+        return result;
+    }
+
+    /** Items whose bounds contain p. */
+    public List<T> queryPoint(Point p) {
+        return query(new Rectangle(p.x, p.y, 1, 1));
+    }
+
+    private long cellCount(Rectangle r) {
+        long columns = Math.floorDiv(r.x + Math.max(r.width, 1) - 1, cellSize) - Math.floorDiv(r.x, cellSize) + 1;
+        long rows = Math.floorDiv(r.y + Math.max(r.height, 1) - 1, cellSize) - Math.floorDiv(r.y, cellSize) + 1;
+        return columns * rows;
+    }
+
+    private long cellKey(int x, int y) {
+        return ((long) Math.floorDiv(x, cellSize) << 32) | (Math.floorDiv(y, cellSize) & 0xFFFFFFFFL);
+    }
+
+    private interface CellVisitor {
+        void visit(long key);
+    }
+
+    private void forEachCell(Rectangle r, CellVisitor visitor) {
+        int x0 = Math.floorDiv(r.x, cellSize);
+        int y0 = Math.floorDiv(r.y, cellSize);
+        int x1 = Math.floorDiv(r.x + Math.max(r.width, 1) - 1, cellSize);
+        int y1 = Math.floorDiv(r.y + Math.max(r.height, 1) - 1, cellSize);
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                visitor.visit(((long) cx << 32) | (cy & 0xFFFFFFFFL));
+            }
+        }
+    }
+}
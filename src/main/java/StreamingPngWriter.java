@@ -0,0 +1,141 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal 8-bit RGBA PNG encoder that accepts the image a few rows at a time, so
+ * callers never have to hold the whole raster in memory.
+ */
+public class StreamingPngWriter {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IDAT_CHUNK_SIZE = 1 << 16;
+    private static final int FILTER_SUB = 1;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final DeflaterOutputStream idat;
+    private final byte[] rowBytes;
+    private final int[] rowPixels;
+    private int rowsWritten = 0;
+
+    public StreamingPngWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image must not be empty: " + width + "x" + height);
+        }
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.rowBytes = new byte[1 + width * 4];
+        this.rowPixels = new int[width];
+        this.idat = new DeflaterOutputStream(new IdatOutputStream(), deflater, IDAT_CHUNK_SIZE);
+
+        this.out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // bit depth
+        headerData.writeByte(6); // colour type: truecolour with alpha
+        headerData.writeByte(0); // compression
+        headerData.writeByte(0); // filter method
+        headerData.writeByte(0); // no interlace
+        writeChunk("IHDR", header.toByteArray(), header.size());
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /** Appends the first rows scanlines of band, which must be exactly as wide as the image. */
+    public void writeRows(BufferedImage band, int rows) throws IOException {
+        if (band.getWidth() != width) {
+            throw new IllegalArgumentException("Band width " + band.getWidth() + " does not match image width " + width);
+        }
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("Too many rows: " + (rowsWritten + rows) + " > " + height);
+        }
+        boolean packed = band.getType() == BufferedImage.TYPE_INT_ARGB
+                && band.getRaster().getDataBuffer() instanceof DataBufferInt;
+        int[] data = packed ? ((DataBufferInt) band.getRaster().getDataBuffer()).getData() : null;
+        for (int y = 0; y < rows; y++) {
+            int[] pixels;
+            int offset;
+            if (packed) {
+                pixels = data;
+                offset = y * width;
+            } else {
+                band.getRGB(0, y, width, 1, rowPixels, 0, width);
+                pixels = rowPixels;
+                offset = 0;
+            }
+            encodeRow(pixels, offset);
+            idat.write(rowBytes);
+        }
+        rowsWritten += rows;
+    }
+
+    public void finish() throws IOException {
+        if (rowsWritten != height) {
+            throw new IllegalStateException("Expected " + height + " rows but got " + rowsWritten);
+        }
+        idat.finish();
+        deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    private void encodeRow(int[] pixels, int offset) {
+        rowBytes[0] = FILTER_SUB;
+        int prevR = 0, prevG = 0, prevB = 0, prevA = 0;
+        for (int x = 0, i = 1; x < width; x++, i += 4) {
+            int argb = pixels[offset + x];
+            int a = argb >>> 24;
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            rowBytes[i] = (byte) (r - prevR);
+            rowBytes[i + 1] = (byte) (g - prevG);
+            rowBytes[i + 2] = (byte) (b - prevB);
+            rowBytes[i + 3] = (byte) (a - prevA);
+            prevR = r;
+            prevG = g;
+            prevB = b;
+            prevA = a;
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private class IdatOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            byte[] chunk = off == 0 ? b : Arrays.copyOfRange(b, off, off + len);
+            writeChunk("IDAT", chunk, len);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Candidate images for a photomosaic with their color features: the mean color of
+ * the centred square crop followed by the means of its 2x2 sub-cells, as RGB
+ * floats.
+ */
+public class TileLibrary {
+    public static final int FEATURE_LENGTH = 15;
+
+    /** One library image; width and height are its full-resolution size. */
+    public record Tile(File file, int width, int height, float[] features) {
+    }
+
+    private final List<Tile> tiles;
+    private final IntFunction<BufferedImage> thumbnails;
+
+    public TileLibrary(List<Tile> tiles) {
+        this(tiles, null);
+    }
+
+    /** thumbnails returns a small opaque preview of the tile at an index. */
+    public TileLibrary(List<Tile> tiles, IntFunction<BufferedImage> thumbnails) {
+        this.tiles = List.copyOf(tiles);
+        this.thumbnails = thumbnails;
+    }
+
+    public List<Tile> getTiles() {
+        return tiles;
+    }
+
+    public int size() {
+        return tiles.size();
+    }
+
+    /** Small preview of the tile at index, or null if the library has none. */
+    public BufferedImage getThumbnail(int index) {
+        return thumbnails == null ? null : thumbnails.apply(index);
+    }
+
+    /**
+     * Reads the images in the folder and its subfolders, skipping files that cannot
+     * be decoded. Results are cached in the folder, see {@link FeatureCache}.
+     */
+    public static TileLibrary scan(File folder) throws IOException {
+        return FeatureCache.scan(folder);
+    }
+
+    /** Features of the centred square crop of image. */
+    public static float[] features(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        BufferedImage square = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        BufferedImage grid = Resampler.resize(square, 2, 2, Resampler.Kernel.BOX);
+        int[] cells = grid.getRGB(0, 0, 2, 2, null, 0, 2);
+        return features(cells, 0, 2);
+    }
+
+    /** Features of the 2x2 cell means at offset in pixels, with rows stride ints apart. */
+    static float[] features(int[] pixels, int offset, int stride) {
+        float[] features = new float[FEATURE_LENGTH];
+        for (int cell = 0; cell < 4; cell++) {
+            int argb = pixels[offset + (cell / 2) * stride + cell % 2];
+            for (int c = 0; c < 3; c++) {
+                float value = (argb >> (16 - 8 * c)) & 0xFF;
+                features[3 + cell * 3 + c] = value;
+                features[c] += value / 4;
+            }
+        }
+        return features;
+    }
+
+    /** The features of every tile, indexed like getTiles(). */
+    public float[][] featureMatrix() {
+        float[][] matrix = new float[tiles.size()][];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = tiles.get(i).features();
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,95 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Composites a mosaic region in parallel. The region is split recursively into
+ * tiles of at most tileSize pixels per side; each split narrows the list of
+ * intersecting images while keeping their back-to-front order, so every tile is
+ * painted independently with the same z-order as the serial path.
+ */
+public class TiledCompositor {
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    public TiledCompositor(ForkJoinPool pool, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    public TiledCompositor() {
+        this(ForkJoinPool.commonPool(), AppDefaults.EXPORT_TILE_SIZE);
+    }
+
+    /** Parallel counterpart of {@link MosaicRenderer#renderInto(BufferedImage, Rectangle)}. */
+    public void renderInto(MosaicRenderer renderer, BufferedImage target, Rectangle region) {
+        if (region.isEmpty()) return;
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        int stride = target.getWidth();
+        pool.invoke(new CompositeTask(renderer, pixels, stride, region, region, renderer.tilesIntersecting(region)));
+    }
+
+    private class CompositeTask extends RecursiveAction {
+        private final MosaicRenderer renderer;
+        private final int[] pixels;
+        private final int stride;
+        private final Rectangle region;
+        private final Rectangle tile;
+        private final List<MosaicTile> layers;
+
+        CompositeTask(MosaicRenderer renderer, int[] pixels, int stride, Rectangle region, Rectangle tile,
+                      List<MosaicTile> layers) {
+            this.renderer = renderer;
+            this.pixels = pixels;
+            this.stride = stride;
+            this.region = region;
+            this.tile = tile;
+            this.layers = layers;
+        }
+
+        @Override
+        protected void compute() {
+            if (tile.width > tileSize || tile.height > tileSize) {
+                Rectangle first;
+                Rectangle second;
+                if (tile.width >= tile.height) {
+                    int half = tile.width / 2;
+                    first = new Rectangle(tile.x, tile.y, half, tile.height);
+                    second = new Rectangle(tile.x + half, tile.y, tile.width - half, tile.height);
+                } else {
+                    int half = tile.height / 2;
+                    first = new Rectangle(tile.x, tile.y, tile.width, half);
+                    second = new Rectangle(tile.x, tile.y + half, tile.width, tile.height - half);
+                }
+                invokeAll(new CompositeTask(renderer, pixels, stride, region, first, intersecting(first)),
+                        new CompositeTask(renderer, pixels, stride, region, second, intersecting(second)));
+                return;
+            }
+            for (int y = tile.y - region.y; y < tile.y - region.y + tile.height; y++) {
+                int start = y * stride + tile.x - region.x;
+                Arrays.fill(pixels, start, start + tile.width, 0);
+            }
+            for (MosaicTile layer : layers) {
+                layer.compositeInto(renderer.pixelsOf(layer.source()), pixels, stride, region, tile, renderer.getKernel());
+            }
+        }
+
+        private List<MosaicTile> intersecting(Rectangle area) {
+            List<MosaicTile> result = new ArrayList<>(layers.size());
+            for (MosaicTile layer : layers) {
+                if (layer.intersects(area)) {
+                    result.add(layer);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoLayoutTest {
+
+    private List<Dimension> createSizes(int count) {
+        Random random = new Random(7);
+        List<Dimension> sizes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sizes.add(new Dimension(50 + random.nextInt(400), 50 + random.nextInt(300)));
+        }
+        return sizes;
+    }
+
+    @Test
+    void testNoModeOverlapsImagesOrDistortsThem() {
+        List<Dimension> sizes = createSizes(300);
+        for (AutoLayout.Mode mode : AutoLayout.Mode.values()) {
+            List<Rectangle> bounds = AutoLayout.layout(sizes, mode, 4);
+            assertEquals(sizes.size(), bounds.size());
+            for (int i = 0; i < bounds.size(); i++) {
+                Rectangle b = bounds.get(i);
+                assertTrue(b.x >= 0 && b.y >= 0, mode + " starts at the origin");
+                double expected = (double) sizes.get(i).width / sizes.get(i).height;
+                assertEquals(expected, (double) b.width / b.height, expected * 0.1, mode + " keeps the aspect ratio");
+                for (int j = i + 1; j < bounds.size(); j++) {
+                    assertFalse(b.intersects(bounds.get(j)), mode + " overlaps " + i + " and " + j);
+                }
+            }
+        }
+        assertEquals(sizes.get(0), AutoLayout.layout(sizes, AutoLayout.Mode.BIN_PACK, 0).get(0).getSize(),
+                "Bin packing keeps sizes");
+    }
+
+    @Test
+    void testJustifiedRowsShareHeightAndWidth() {
+        List<Rectangle> bounds = AutoLayout.layout(createSizes(1000), AutoLayout.Mode.JUSTIFIED_ROWS, 0);
+        int width = bounds.get(0).x + bounds.get(0).width;
+        int rowRight = 0;
+        for (int i = 0; i < bounds.size(); i++) {
+            Rectangle b = bounds.get(i);
+            if (i > 0 && b.x == 0) {
+                assertEquals(width, rowRight, "Every full row ends at the same x");
+            }
+            if (i > 0 && b.x != 0) {
+                assertEquals(bounds.get(i - 1).height, b.height, "Images in a row share the height");
+            }
+            rowRight = b.x + b.width;
+            width = Math.max(width, rowRight);
+        }
+    }
+
+    @Test
+    void testCanvasLayoutIsOneUndoableEdit() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        List<Rectangle> original = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ScaledComponent sc = new ScaledComponent(new BufferedImage(40 + i, 30, BufferedImage.TYPE_INT_RGB));
+            canvas.add(sc);
+            original.add(sc.getImageBounds());
+        }
+
+        canvas.autoLayout(AutoLayout.Mode.GRID);
+        assertEquals(1, canvas.getHistory().getUndoCount());
+        for (Component comp : canvas.getComponents()) {
+            ScaledComponent sc = (ScaledComponent) comp;
+            assertEquals(canvas.toScaled(sc.getImageBounds()), sc.getBounds());
+        }
+        assertNotEquals(new Point(0, 0), ((ScaledComponent) canvas.getComponent(0)).getImageLocation());
+
+        canvas.getHistory().undo();
+        Component[] children = canvas.getComponents();
+        for (int i = 0; i < children.length; i++) {
+            assertEquals(original.get(i), ((ScaledComponent) children[i]).getImageBounds());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeepZoomWriterTest {
+    @TempDir
+    File folder;
+
+    private MosaicRenderer createRenderer() {
+        Random random = new Random(7);
+        BufferedImage image = new BufferedImage(50, 40, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 50; x++) {
+                image.setRGB(x, y, random.nextInt() | 0xFF000000);
+            }
+        }
+        return new MosaicRenderer(List.of(
+                new MosaicTile(image, new Rectangle(0, 0, 150, 120)),
+                new MosaicTile(image, new Rectangle(140, 100, 160, 100))));
+    }
+
+    @Test
+    void testTopLevelTilesMatchRenderWithOverlap() throws IOException {
+        MosaicRenderer renderer = createRenderer();
+        File dzi = new File(folder, "mosaic.dzi");
+        DeepZoomWriter.write(renderer, dzi, 64, 1, "png", null);
+
+        String descriptor = Files.readString(dzi.toPath());
+        assertTrue(descriptor.contains("TileSize=\"64\" Overlap=\"1\" Format=\"png\""));
+        assertTrue(descriptor.contains("<Size Width=\"300\" Height=\"200\"/>"));
+
+        File files = new File(folder, "mosaic_files");
+        BufferedImage mosaic = renderer.render();
+        // 300 x 200 needs levels 0 to 9, the top one cut into 5 x 4 tiles
+        assertEquals(10, files.list().length);
+        assertEquals(20, new File(files, "9").list().length);
+        BufferedImage tile = ImageIO.read(new File(files, "9/1_2.png"));
+        assertEquals(new Dimension(66, 66), new Dimension(tile.getWidth(), tile.getHeight()));
+        for (int y = 0; y < 66; y++) {
+            for (int x = 0; x < 66; x++) {
+                assertEquals(mosaic.getRGB(63 + x, 127 + y), tile.getRGB(x, y), "at " + x + "," + y);
+            }
+        }
+        BufferedImage corner = ImageIO.read(new File(files, "9/4_3.png"));
+        assertEquals(new Dimension(45, 9), new Dimension(corner.getWidth(), corner.getHeight()));
+    }
+
+    @Test
+    void testLowerLevelsHalveTheLevelAbove() throws IOException {
+        MosaicRenderer renderer = createRenderer();
+        File dzi = new File(folder, "mosaic.dzi");
+        DeepZoomWriter.write(renderer, dzi, 64, 0, "png", null);
+        File files = new File(folder, "mosaic_files");
+        BufferedImage mosaic = renderer.render();
+
+        // Level 8 is 150 x 100, so its tile 1_1 starts at 64,64 there and 128,128 above
+        BufferedImage tile = ImageIO.read(new File(files, "8/1_1.png"));
+        assertEquals(new Dimension(64, 36), new Dimension(tile.getWidth(), tile.getHeight()));
+        for (int y = 0; y < 36; y += 5) {
+            for (int x = 0; x < 64; x += 5) {
+                int sx = 128 + 2 * x;
+                int sy = 128 + 2 * y;
+                int expected = ScalarPixelKernels.average(mosaic.getRGB(sx, sy), mosaic.getRGB(sx + 1, sy),
+                        mosaic.getRGB(sx, sy + 1), mosaic.getRGB(sx + 1, sy + 1));
+                assertEquals(expected, tile.getRGB(x, y), "at " + x + "," + y);
+            }
+        }
+        BufferedImage single = ImageIO.read(new File(files, "0/0_0.png"));
+        assertEquals(new Dimension(1, 1), new Dimension(single.getWidth(), single.getHeight()));
+        assertEquals(1, new File(files, "2").list().length);
+    }
+
+    @Test
+    void testJpegTilesAreFlattened() throws IOException {
+        MosaicRenderer renderer = new MosaicRenderer(List.of(
+                new MosaicTile(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB), new Rectangle(0, 0, 100, 10))));
+        DeepZoomWriter.write(renderer, new File(folder, "blank.dzi"), 32, 1, "jpg", null);
+        BufferedImage tile = ImageIO.read(new File(folder, "blank_files/7/0_0.jpg"));
+        assertEquals(0xFFFFFF, tile.getRGB(5, 5) & 0xFFFFFF);
+    }
+}
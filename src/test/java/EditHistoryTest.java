@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditHistoryTest {
+
+    private ScaledComponent move(ScaledCanvas canvas, ScaledComponent sc, int x, int y) {
+        ScaledComponent.Geometry before = sc.getGeometry();
+        sc.setImageLocation(new Point(x, y));
+        canvas.getHistory().record(new CanvasEdits.Geometry(sc, before, sc.getGeometry(), CanvasEdits.Kind.MOVE));
+        return sc;
+    }
+
+    @Test
+    void testConsecutiveMovesMergeAndUndoTogether() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent sc = new ScaledComponent(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB));
+        canvas.add(sc);
+        move(canvas, sc, 10, 0);
+        move(canvas, sc, 20, 5);
+        move(canvas, sc, 30, 10);
+        assertEquals(1, canvas.getHistory().getUndoCount());
+
+        canvas.getHistory().undo();
+        assertEquals(new Rectangle(0, 0, 40, 30), sc.getImageBounds());
+        assertEquals(new Rectangle(0, 0, 40, 30), sc.getBounds());
+        canvas.getHistory().redo();
+        assertEquals(new Rectangle(30, 10, 40, 30), sc.getImageBounds());
+        assertEquals(new Rectangle(30, 10, 40, 30), canvas.getUnscaledImagesBounds());
+    }
+
+    @Test
+    void testSplitUndoRestoresOriginalComponent() throws Exception {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent front = new ScaledComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        ScaledComponent sc = new ScaledComponent(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB));
+        canvas.add(front);
+        canvas.add(sc);
+        Method splitMethod = ScaledComponent.class.getDeclaredMethod("performVerticalSplit", int.class);
+        splitMethod.setAccessible(true);
+        splitMethod.invoke(sc, 120);
+        assertEquals(3, canvas.getComponentCount());
+        assertEquals(0, canvas.getHistory().getRetainedBytes(), "Split pieces share the source they replaced");
+
+        canvas.getHistory().undo();
+        assertEquals(2, canvas.getComponentCount());
+        assertSame(front, canvas.getComponent(0));
+        assertSame(sc, canvas.getComponent(1));
+        assertEquals(new Rectangle(0, 0, 200, 100), canvas.getUnscaledImagesBounds());
+
+        canvas.getHistory().redo();
+        assertEquals(3, canvas.getComponentCount());
+        assertEquals(-1, canvas.getComponentZOrder(sc));
+    }
+
+    @Test
+    void testDeleteAndZOrderUndo() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent a = new ScaledComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        ScaledComponent b = new ScaledComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        canvas.add(a);
+        canvas.add(b);
+        canvas.bringToFront(b);
+        canvas.deleteComponent(a);
+        assertEquals(10 * 10 * 4, canvas.getHistory().getRetainedBytes());
+
+        canvas.getHistory().undo();
+        assertSame(b, canvas.getComponent(0));
+        assertSame(a, canvas.getComponent(1));
+        canvas.getHistory().undo();
+        assertSame(a, canvas.getComponent(0));
+        assertSame(b, canvas.getComponent(1));
+    }
+
+    @Test
+    void testUndoDeleteDoesNotRestoreSelection() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent a = new ScaledComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        ScaledComponent b = new ScaledComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        canvas.add(a);
+        canvas.add(b);
+        canvas.selectComponent(a);
+        canvas.deleteComponent(a);
+
+        canvas.getHistory().undo();
+        assertNull(canvas.getSelectedComponent());
+        assertFalse(a.isSelected(), "Restored image must not be drawn as selected");
+        canvas.selectComponent(b);
+        assertFalse(a.isSelected());
+        assertTrue(b.isSelected());
+    }
+
+    @Test
+    void testContentShiftIsUndoneBeforeEarlierMoves() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent a = new ScaledComponent(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB));
+        ScaledComponent b = new ScaledComponent(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB));
+        canvas.add(a);
+        canvas.add(b);
+        move(canvas, a, 30, 10);
+        move(canvas, b, 100, 50);
+        canvas.shiftUnscaledContentBounds(new Point(-30, -10));
+        assertEquals(new Rectangle(0, 0, 110, 70), canvas.getUnscaledImagesBounds());
+
+        canvas.getHistory().undo();
+        assertEquals(new Rectangle(30, 10, 110, 70), canvas.getUnscaledImagesBounds());
+        canvas.getHistory().undo();
+        assertEquals(new Rectangle(0, 0, 40, 30), b.getImageBounds());
+        assertEquals(new Rectangle(30, 10, 40, 30), a.getImageBounds());
+    }
+
+    @Test
+    void testBudgetDropsOldestEdits() {
+        EditHistory history = new EditHistory(100);
+        int[] undone = new int[1];
+        for (int i = 0; i < 5; i++) {
+            history.record(new EditHistory.Edit() {
+                public void undo() { undone[0]++; }
+                public void redo() { }
+                public long retainedBytes() { return 40; }
+            });
+        }
+        assertEquals(2, history.getUndoCount());
+        assertEquals(80, history.getRetainedBytes());
+        history.undo();
+        history.undo();
+        history.undo();
+        assertEquals(2, undone[0]);
+    }
+
+    @Test
+    void testReplaceBytesAreFixedWhenRecorded() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent placeholder = new ScaledComponent(new Dimension(40, 30));
+        CanvasEdits.Replace delete = new CanvasEdits.Replace(canvas,
+                List.of(new CanvasEdits.Placement(placeholder, 0)), List.of());
+        assertEquals(0, delete.retainedBytes());
+        placeholder.setSource(SourceImage.of(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB)));
+        assertEquals(0, delete.retainedBytes(), "Loading later does not change what the history counted");
+    }
+}
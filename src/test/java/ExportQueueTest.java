@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportQueueTest {
+    @TempDir
+    File folder;
+
+    private MosaicRenderer createRenderer() {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                image.setRGB(x, y, (x * 6) << 16 | (y * 8) << 8 | 0x40);
+            }
+        }
+        return new MosaicRenderer(List.of(
+                new MosaicTile(image, new Rectangle(0, 0, 400, 300)),
+                new MosaicTile(image, new Rectangle(300, 200, 80, 60))));
+    }
+
+    @Test
+    void testQueuedExportsWriteTheirSnapshots() throws Exception {
+        ExportQueue queue = new ExportQueue(job -> { });
+        MosaicRenderer renderer = createRenderer();
+        ExportQueue.Job png = queue.submit(renderer, new File(folder, "full.png"));
+        ExportQueue.Job jpg = queue.submit(renderer.scaled(0.5), new File(folder, "half.jpg"));
+
+        assertEquals(ExportQueue.State.DONE, png.whenFinished().get(30, TimeUnit.SECONDS).getState());
+        assertEquals(ExportQueue.State.DONE, jpg.whenFinished().get(30, TimeUnit.SECONDS).getState());
+        assertTrue(queue.getPendingJobs().isEmpty());
+        assertEquals(1.0, png.getProgress());
+
+        BufferedImage written = ImageIO.read(png.getFile());
+        BufferedImage expected = renderer.render();
+        assertEquals(expected.getWidth(), written.getWidth());
+        for (int y = 0; y < expected.getHeight(); y += 7) {
+            for (int x = 0; x < expected.getWidth(); x += 7) {
+                assertEquals(expected.getRGB(x, y), written.getRGB(x, y));
+            }
+        }
+        BufferedImage half = ImageIO.read(jpg.getFile());
+        assertEquals(new Dimension(200, 150), new Dimension(half.getWidth(), half.getHeight()));
+    }
+
+    @Test
+    void testCancelledExportsLeaveNoFile() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExportQueue queue = new ExportQueue(job -> {
+            if (job.getState() == ExportQueue.State.RUNNING && job.getProgress() > 0) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        MosaicRenderer renderer = createRenderer();
+        ExportQueue.Job running = queue.submit(renderer, new File(folder, "running.png"));
+        ExportQueue.Job queued = queue.submit(renderer, new File(folder, "queued.png"));
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+        assertEquals(List.of(running, queued), queue.getPendingJobs());
+
+        queued.cancel();
+        assertEquals(ExportQueue.State.CANCELLED, queued.getState());
+        running.cancel();
+        release.countDown();
+
+        assertEquals(ExportQueue.State.CANCELLED, running.whenFinished().get(30, TimeUnit.SECONDS).getState());
+        assertFalse(running.getFile().exists());
+        assertFalse(queued.getFile().exists());
+        assertTrue(queue.getPendingJobs().isEmpty());
+    }
+
+    @Test
+    void testErrorsFailTheJob() throws Exception {
+        ExportQueue queue = new ExportQueue(job -> { });
+        MosaicRenderer renderer = new MosaicRenderer(createRenderer().getTiles()) {
+            @Override
+            public BufferedImage render(int bandHeight, Progress progress) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+        };
+        ExportQueue.Job job = queue.submit(renderer, new File(folder, "huge.png"));
+
+        assertEquals(ExportQueue.State.FAILED, job.whenFinished().get(30, TimeUnit.SECONDS).getState());
+        assertInstanceOf(OutOfMemoryError.class, job.getError());
+        assertTrue(queue.getPendingJobs().isEmpty());
+        assertFalse(job.getFile().exists());
+    }
+}
@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureCacheTest {
+    @TempDir
+    File folder;
+
+    private void writeImage(File file, int w, int h, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, w, h);
+        g.dispose();
+        ImageIO.write(image, "png", file);
+    }
+
+    @Test
+    void testRescanReusesUnchangedEntries() throws IOException {
+        writeImage(new File(folder, "red.png"), 200, 100, Color.RED);
+        File sub = new File(folder, "sub");
+        sub.mkdir();
+        writeImage(new File(sub, "blue.png"), 50, 80, Color.BLUE);
+        new File(folder, "notes.txt").createNewFile();
+
+        TileLibrary library = FeatureCache.scan(folder);
+        assertEquals(2, library.size());
+        assertEquals(200, library.getTiles().get(0).width());
+        assertEquals("blue.png", library.getTiles().get(1).file().getName());
+        BufferedImage thumbnail = library.getThumbnail(0);
+        assertEquals(new Dimension(2 * FeatureCache.THUMBNAIL_SIZE, FeatureCache.THUMBNAIL_SIZE),
+                new Dimension(thumbnail.getWidth(), thumbnail.getHeight()), "The shorter side covers a cell");
+        assertEquals(0xFF0000, thumbnail.getRGB(5, 5) & 0xFFFFFF);
+
+        File cacheFile = new File(folder, FeatureCache.FILE_NAME);
+        Map<String, FeatureCache.Entry> cached = FeatureCache.read(cacheFile);
+        assertEquals(3, cached.size(), "Files that are not images are remembered too");
+        assertFalse(cached.get("notes.txt").isImage());
+        assertArrayEquals(library.getTiles().get(1).features(), cached.get("sub/blue.png").features());
+
+        // Nothing changed, so the cache is not rewritten
+        long written = cacheFile.lastModified();
+        cacheFile.setLastModified(written - 10_000);
+        TileLibrary again = FeatureCache.scan(folder);
+        assertEquals(written - 10_000, cacheFile.lastModified());
+        assertEquals(0xFF0000, again.getThumbnail(0).getRGB(5, 5) & 0xFFFFFF);
+        assertArrayEquals(library.getTiles().get(0).features(), again.getTiles().get(0).features());
+    }
+
+    @Test
+    void testChangedAndRemovedFilesAreUpdated() throws IOException {
+        File red = new File(folder, "a.png");
+        writeImage(red, 40, 40, Color.RED);
+        File green = new File(folder, "b.png");
+        writeImage(green, 40, 40, Color.GREEN);
+        FeatureCache.scan(folder);
+
+        writeImage(red, 60, 30, Color.BLUE);
+        red.setLastModified(red.lastModified() + 5_000);
+        green.delete();
+        TileLibrary library = FeatureCache.scan(folder);
+
+        assertEquals(1, library.size());
+        assertEquals(60, library.getTiles().get(0).width());
+        assertEquals(0x0000FF, library.getThumbnail(0).getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(1, FeatureCache.read(new File(folder, FeatureCache.FILE_NAME)).size());
+    }
+
+    @Test
+    void testDamagedCacheIsRebuilt() throws IOException {
+        writeImage(new File(folder, "a.png"), 40, 40, Color.RED);
+        java.nio.file.Files.write(new File(folder, FeatureCache.FILE_NAME).toPath(), new byte[]{1, 2, 3});
+        assertEquals(1, FeatureCache.scan(folder).size());
+        assertEquals(1, FeatureCache.read(new File(folder, FeatureCache.FILE_NAME)).size());
+    }
+
+    @Test
+    void testFailedReadsAreNotCached() throws IOException {
+        writeImage(new File(folder, "a.png"), 40, 40, Color.RED);
+        File broken = new File(folder, "broken.png");
+        writeImage(broken, 40, 40, Color.GREEN);
+        byte[] png = java.nio.file.Files.readAllBytes(broken.toPath());
+        java.nio.file.Files.write(broken.toPath(), java.util.Arrays.copyOf(png, png.length / 2));
+
+        assertEquals(1, FeatureCache.scan(folder).size());
+        Map<String, FeatureCache.Entry> cached = FeatureCache.read(new File(folder, FeatureCache.FILE_NAME));
+        assertEquals(1, cached.size());
+        assertFalse(cached.containsKey("broken.png"), "A failed read is retried on the next scan");
+    }
+
+    @Test
+    void testUnwritableCacheFailsTheScan() throws IOException {
+        writeImage(new File(folder, "a.png"), 40, 40, Color.RED);
+        File cacheFile = new File(folder, FeatureCache.FILE_NAME);
+        cacheFile.mkdir();
+        new File(cacheFile, "occupied").createNewFile();
+        assertThrows(IOException.class, () -> FeatureCache.scan(folder));
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeTest {
+
+    @Test
+    void testNearestMatchesBruteForce() {
+        Random random = new Random(3);
+        float[][] points = new float[3000][TileLibrary.FEATURE_LENGTH];
+        for (float[] point : points) {
+            for (int d = 0; d < point.length; d++) {
+                point[d] = random.nextInt(256);
+            }
+        }
+        KdTree tree = new KdTree(points);
+
+        for (int q = 0; q < 50; q++) {
+            float[] query = new float[TileLibrary.FEATURE_LENGTH];
+            for (int d = 0; d < query.length; d++) {
+                query[d] = random.nextInt(256);
+            }
+            float[] expected = new float[points.length];
+            for (int i = 0; i < points.length; i++) {
+                for (int d = 0; d < query.length; d++) {
+                    expected[i] += (query[d] - points[i][d]) * (query[d] - points[i][d]);
+                }
+            }
+            Arrays.sort(expected);
+
+            int[] ids = new int[8];
+            float[] distances = new float[8];
+            assertEquals(8, tree.nearest(query, ids, distances));
+            assertArrayEquals(Arrays.copyOf(expected, 8), distances);
+        }
+    }
+
+    @Test
+    void testFewerPointsThanRequested() {
+        KdTree tree = new KdTree(new float[][]{{0, 0}, {5, 5}});
+        int[] ids = new int[4];
+        float[] distances = new float[4];
+
+        assertEquals(2, tree.nearest(new float[]{4, 4}, ids, distances));
+        assertEquals(1, ids[0]);
+        assertEquals(2f, distances[0]);
+        assertEquals(0, ids[1]);
+    }
+}
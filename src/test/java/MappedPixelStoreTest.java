@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPixelStoreTest {
+    @Test
+    void testReadsMatchSourceAcrossSegments() throws IOException {
+        BufferedImage image = TestImages.createNoiseImage(new Random(7), 37, 50, BufferedImage.TYPE_INT_ARGB);
+        PixelRows heap = new PixelRows(image);
+        // Seven rows per mapping forces several segments, the last one partial
+        MappedPixelStore mapped = MappedPixelStore.copyOf(heap, 37 * 4 * 7);
+
+        assertEquals(8, mapped.getSegmentCount());
+        assertEquals(37, mapped.getWidth());
+        assertEquals(50, mapped.getHeight());
+        int[] expected = new int[10];
+        int[] actual = new int[10];
+        for (int y = 0; y < 50; y++) {
+            heap.read(y, 20, 10, expected);
+            mapped.read(y, 20, 10, actual);
+            assertArrayEquals(expected, actual, "Row " + y);
+        }
+    }
+
+    @Test
+    void testCopyOfImageMatchesPixels() throws IOException {
+        BufferedImage image = TestImages.createNoiseImage(new Random(7), 16, 16, BufferedImage.TYPE_INT_ARGB);
+        File tmp = new File(System.getProperty("java.io.tmpdir"));
+        int before = tmp.list((dir, name) -> name.startsWith("mosaic-raster")).length;
+        MappedPixelStore mapped = MappedPixelStore.copyOf(image);
+        assertEquals(before, tmp.list((dir, name) -> name.startsWith("mosaic-raster")).length,
+                "The temp file is deleted once mapped");
+
+        int[] row = new int[16];
+        mapped.read(5, row);
+        for (int x = 0; x < 16; x++) {
+            assertEquals(image.getRGB(x, 5), row[x]);
+        }
+    }
+}
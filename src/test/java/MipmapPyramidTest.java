@@ -0,0 +1,49 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MipmapPyramidTest {
+
+    @Test
+    void testLevelForPicksSmallestLevelCoveringTargetSize() {
+        BufferedImage source = new BufferedImage(1024, 512, BufferedImage.TYPE_INT_RGB);
+        MipmapPyramid pyramid = new MipmapPyramid(source, Runnable::run, null);
+
+        assertEquals(10, pyramid.getLevelCount());
+        assertEquals(0, pyramid.levelFor(1024, 512));
+        assertEquals(0, pyramid.levelFor(600, 300));
+        assertEquals(1, pyramid.levelFor(512, 256));
+        assertEquals(2, pyramid.levelFor(200, 100));
+        assertEquals(0, pyramid.levelFor(2048, 1024), "Zooming in should paint from the source");
+    }
+
+    @Test
+    void testImageForFallsBackToSourceThenServesBuiltLevel() {
+        BufferedImage source = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        MipmapPyramid pyramid = new MipmapPyramid(source, task -> { }, null);
+
+        assertSame(source, pyramid.imageFor(100, 75), "Source is used until the level has been built");
+
+        BufferedImage level3 = pyramid.buildLevel(3);
+        assertEquals(100, level3.getWidth());
+        assertEquals(75, level3.getHeight());
+        assertSame(level3, pyramid.imageFor(100, 75));
+        assertSame(level3, pyramid.imageFor(90, 60), "Smaller targets reuse the finest available level");
+    }
+
+    @Test
+    void testScheduledBuildNotifiesListener() {
+        BufferedImage source = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+        AtomicInteger readyCount = new AtomicInteger();
+        MipmapPyramid pyramid = new MipmapPyramid(source, Runnable::run, readyCount::incrementAndGet);
+
+        pyramid.imageFor(64, 64);
+        assertEquals(1, readyCount.get());
+        BufferedImage level = pyramid.imageFor(64, 64);
+        assertEquals(64, level.getWidth());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, level.getType());
+    }
+}
@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MosaicBatchTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testBatchRenderMatchesEditorGeometry() throws IOException {
+        BufferedImage blue = TestImages.createMarkedImage(120, 80, Color.BLUE);
+        BufferedImage red = TestImages.createMarkedImage(60, 90, Color.RED);
+        ImageIO.write(blue, "png", dir.resolve("blue.png").toFile());
+        ImageIO.write(red, "png", dir.resolve("red.png").toFile());
+        // Listed front first; z puts it back in front
+        File layoutFile = dir.resolve("layout.properties").toFile();
+        Files.writeString(layoutFile.toPath(), String.join("\n",
+                "tile.0.file=red.png", "tile.0.x=70", "tile.0.y=40", "tile.0.crop=10,0,40,90", "tile.0.scale=1.5", "tile.0.z=5",
+                "tile.1.file=blue.png", "tile.1.x=10", "tile.1.y=20"));
+
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(new ScaledComponent(blue));
+        ((ScaledComponent) canvas.getComponent(0)).setImageLocation(new Point(10, 20));
+        ScaledComponent front = new ScaledComponent(SourceImage.of(red), new Rectangle(10, 0, 40, 90));
+        front.setImageBounds(new Rectangle(70, 40, 60, 135));
+        canvas.add(front);
+        canvas.setComponentZOrder(front, 0);
+        BufferedImage expected = canvas.createUnscaledMosaicImage();
+
+        File inMemory = dir.resolve("mosaic.png").toFile();
+        File streamed = dir.resolve("streamed.png").toFile();
+        MosaicBatch.render(MosaicLayout.read(layoutFile), inMemory, false);
+        MosaicBatch.render(MosaicLayout.read(layoutFile), streamed, true);
+
+        TestImages.assertSamePixels(expected, ImageIO.read(inMemory));
+        TestImages.assertSamePixels(expected, ImageIO.read(streamed));
+    }
+
+    @Test
+    void testCropOutsideSourceIsReported() throws IOException {
+        ImageIO.write(TestImages.createMarkedImage(20, 20, Color.BLUE), "png", dir.resolve("small.png").toFile());
+        File layoutFile = dir.resolve("layout.properties").toFile();
+        Files.writeString(layoutFile.toPath(), "tile.0.file=small.png\ntile.0.crop=10,10,20,20\n");
+
+        IOException ex = assertThrows(IOException.class, () -> MosaicBatch.createRenderer(MosaicLayout.read(layoutFile)));
+        assertTrue(ex.getMessage().contains("small.png"));
+    }
+}
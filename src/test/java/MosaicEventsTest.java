@@ -0,0 +1,55 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MosaicEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testBatchExportEmitsDecodeCompositeAndExportEvents() throws Exception {
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "png", dir.resolve("a.png").toFile());
+        File layoutFile = dir.resolve("layout.properties").toFile();
+        Files.writeString(layoutFile.toPath(), "tile.0.file=a.png\ntile.1.file=a.png\ntile.1.x=64\n");
+        File output = dir.resolve("out.png").toFile();
+        Path dump = dir.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("mosaic.Decode");
+            recording.enable("mosaic.Composite");
+            recording.enable("mosaic.Export");
+            recording.start();
+            MosaicBatch.render(MosaicLayout.read(layoutFile), output, false);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        RecordedEvent decode = find(events, "mosaic.Decode");
+        assertEquals(64, decode.getInt("width"));
+        assertEquals(48, decode.getInt("height"));
+        RecordedEvent composite = find(events, "mosaic.Composite");
+        assertEquals(128, composite.getInt("width"));
+        assertEquals(2, composite.getInt("tileCount"));
+        RecordedEvent export = find(events, "mosaic.Export");
+        assertEquals(2, export.getInt("tileCount"));
+        assertEquals(output.length(), export.getLong("bytes"));
+    }
+
+    private RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+    }
+}
@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
@@ -102,7 +103,7 @@ public class MosaicMakerTest {
 
         File testFile1 = createTestImage(new Dimension(img1W, img1H));
         assertInstanceOf(ScaledCanvas.class, canvas, "Canvas must be a ScaledCanvas");
-        canvas.addImageToCanvas(testFile1);
+        canvas.addImageToCanvas(testFile1).get(10, TimeUnit.SECONDS);
         zoomToFitMethod.invoke(maker);
 
         // Get ImageComponent
@@ -135,7 +136,7 @@ public class MosaicMakerTest {
         Dimension d2 = new Dimension(1800, 900);
 
         File testFile1 = createTestImage(d1);
-        canvas.addImageToCanvas(testFile1);
+        canvas.addImageToCanvas(testFile1).get(10, TimeUnit.SECONDS);
         zoomToFitMethod.invoke(maker);
 
         File testFile2 = createTestImage(d2);
@@ -150,7 +151,7 @@ public class MosaicMakerTest {
         double actualScale = scaleField.getDouble(canvas);
         assertEquals(expectedScale, actualScale, "Scale field should match computed zoom-to-fit scale");
 
-        canvas.addImageToCanvas(testFile2);
+        canvas.addImageToCanvas(testFile2).get(10, TimeUnit.SECONDS);
         Component[] components = canvas.getComponents();
         assertEquals(2, components.length, "Canvas should contain 2 component");
         Dimension expectedDim2 = scaleDimension(d2, expectedScale);
@@ -174,9 +175,9 @@ public class MosaicMakerTest {
         File testFile1 = createTestImage(d1);
         File testFile2 = createTestImage(d2);
 
-        canvas.addImageToCanvas(testFile1);
+        canvas.addImageToCanvas(testFile1).get(10, TimeUnit.SECONDS);
         ScaledComponent ic1 = (ScaledComponent) canvas.getComponents()[0];
-        canvas.addImageToCanvas(testFile2);
+        canvas.addImageToCanvas(testFile2).get(10, TimeUnit.SECONDS);
         ScaledComponent ic2 = (ScaledComponent) canvas.getComponents()[0];
         ic2.setImageLocation(new Point(ic1.getX()+ic1.getWidth(),ic1.getY()));
         zoomToFitMethod.invoke(maker);
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MosaicRendererTest {
+    private ScaledCanvas createCanvas() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent back = new ScaledComponent(TestImages.createMarkedImage(120, 80, Color.BLUE));
+        back.setImageLocation(new Point(10, 20));
+        canvas.add(back);
+        ScaledComponent front = new ScaledComponent(TestImages.createMarkedImage(60, 90, Color.RED));
+        front.setImageLocation(new Point(70, 40));
+        front.setImageDimension(new Dimension(90, 135));
+        canvas.add(front);
+        canvas.setComponentZOrder(front, 0);
+        return canvas;
+    }
+
+    @Test
+    void testMosaicIsOffsetToContentBoundsAndKeepsZOrder() {
+        ScaledCanvas canvas = createCanvas();
+        BufferedImage mosaic = canvas.createUnscaledMosaicImage();
+
+        assertEquals(new Rectangle(10, 20, 150, 155), canvas.getUnscaledImagesBounds());
+        assertEquals(150, mosaic.getWidth());
+        assertEquals(155, mosaic.getHeight());
+        assertEquals(Color.BLUE.getRGB(), mosaic.getRGB(5, 10));
+        assertEquals(Color.RED.getRGB(), mosaic.getRGB(100, 50));
+        assertEquals(0, mosaic.getRGB(5, 150) >>> 24, "Uncovered pixels should stay transparent");
+    }
+
+    @Test
+    void testStreamingPngMatchesInMemoryRender() throws IOException {
+        ScaledCanvas canvas = createCanvas();
+        MosaicRenderer renderer = canvas.createMosaicRenderer();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.writePng(out, 16);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        TestImages.assertSamePixels(renderer.render(), decoded);
+    }
+
+    @Test
+    void testSourcePixelsAreResolvedOncePerRenderer() {
+        BufferedImage image = TestImages.createMarkedImage(64, 64, Color.RED);
+        int[] resolved = new int[1];
+        SourceImage source = new SourceImage(null, 64, 64, image) {
+            @Override
+            public synchronized PixelStore getPixels() {
+                resolved[0]++;
+                return super.getPixels();
+            }
+        };
+        MosaicRenderer renderer = new MosaicRenderer(List.of(
+                new MosaicTile(source, new Rectangle(0, 0, 64, 64), new Rectangle(0, 0, 128, 128)),
+                new MosaicTile(source, new Rectangle(0, 0, 32, 32), new Rectangle(128, 0, 64, 64))))
+                .setCompositor(new TiledCompositor(java.util.concurrent.ForkJoinPool.commonPool(), 16));
+
+        renderer.render(8, null);
+        assertEquals(1, resolved[0], "Every band and tile shares one PixelStore per source");
+    }
+
+    @Test
+    void testBandedRenderReleasesSourcesAboveTheBand() {
+        List<MosaicTile> tiles = new java.util.ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tiles.add(new MosaicTile(TestImages.createMarkedImage(32, 32, Color.RED), new Rectangle(0, i * 32, 32, 32)));
+        }
+        MosaicRenderer renderer = new MosaicRenderer(tiles);
+        int[] mostHeld = new int[1];
+
+        renderer.render(32, (rows, total) -> mostHeld[0] = Math.max(mostHeld[0], renderer.getHeldSourceCount()));
+        assertEquals(0, mostHeld[0], "Each band's source is dropped once the band is done");
+        renderer.render(48, (rows, total) -> mostHeld[0] = Math.max(mostHeld[0], renderer.getHeldSourceCount()));
+        assertEquals(1, mostHeld[0], "Only a source that reaches below the band is kept");
+    }
+
+    @Test
+    void testWholeRenderReleasesAllSources() {
+        MosaicRenderer renderer = new MosaicRenderer(List.of(
+                new MosaicTile(TestImages.createMarkedImage(32, 32, Color.RED), new Rectangle(0, 0, 32, 32)),
+                new MosaicTile(TestImages.createMarkedImage(32, 32, Color.BLUE), new Rectangle(0, 32, 32, 32))));
+        renderer.render();
+        assertEquals(0, renderer.getHeldSourceCount());
+        renderer.render(new Rectangle(0, 0, 32, 64));
+        assertEquals(0, renderer.getHeldSourceCount());
+        renderer.renderBand(new Rectangle(0, 0, 32, 64));
+        assertEquals(2, renderer.getHeldSourceCount(), "Bands hold their sources until released");
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotomosaicTest {
+    @TempDir
+    File folder;
+
+    private void writeTile(String name, Color color) throws IOException {
+        ImageIO.write(TestImages.createFilledImage(60, 40, color), "png", new File(folder, name));
+    }
+
+    @Test
+    void testCellsGetClosestTileAndLandOnCanvas() throws IOException {
+        writeTile("red.png", Color.RED);
+        writeTile("green.png", Color.GREEN);
+        writeTile("blue.png", Color.BLUE);
+        new File(folder, "notes.txt").createNewFile();
+        TileLibrary library = TileLibrary.scan(folder);
+        assertEquals(3, library.size(), "Files that are not images are skipped");
+
+        // Left half red, right half blue
+        BufferedImage target = TestImages.createFilledImage(80, 40, Color.BLUE);
+        Graphics2D g = target.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 40, 40);
+        g.dispose();
+
+        Photomosaic.Result result = Photomosaic.generate(target, library,
+                new Photomosaic.Options(4, 16, 3, 0, 0, 0));
+        assertEquals(2, result.rows());
+        for (int cell = 0; cell < result.tiles().length; cell++) {
+            String expected = cell % 4 < 2 ? "red.png" : "blue.png";
+            assertEquals(expected, library.getTiles().get(result.tiles()[cell]).file().getName());
+        }
+
+        ScaledCanvas canvas = new ScaledCanvas();
+        List<ScaledComponent> components = Photomosaic.createComponents(result);
+        canvas.addComponents(components);
+        assertEquals(8, canvas.getComponentCount());
+        assertEquals(1, canvas.getHistory().getUndoCount());
+        assertEquals(new Rectangle(0, 0, 64, 32), canvas.getUnscaledImagesBounds());
+        BufferedImage mosaic = canvas.createUnscaledMosaicImage();
+        assertEquals(Color.RED.getRGB(), mosaic.getRGB(10, 10));
+        assertEquals(Color.BLUE.getRGB(), mosaic.getRGB(50, 20));
+    }
+
+    @Test
+    void testThumbnailsCoverDefaultCellsAndLargerCellsDecode() throws IOException {
+        ImageIO.write(TestImages.createFilledImage(300, 150, Color.RED), "png", new File(folder, "wide.png"));
+        TileLibrary library = TileLibrary.scan(folder);
+        BufferedImage thumbnail = library.getThumbnail(0);
+        assertEquals(AppDefaults.PHOTOMOSAIC_CELL_SIZE, thumbnail.getHeight());
+
+        BufferedImage target = TestImages.createFilledImage(64, 64, Color.RED);
+        ScaledComponent cell = Photomosaic.createComponents(Photomosaic.generate(target, library,
+                Photomosaic.Options.of(1))).get(0);
+        assertEquals(thumbnail.getHeight(), cell.getImage().getHeight(), "A warm cache needs no decode");
+
+        int larger = 2 * AppDefaults.PHOTOMOSAIC_CELL_SIZE;
+        cell = Photomosaic.createComponents(Photomosaic.generate(target, library,
+                new Photomosaic.Options(1, larger, 3, 0, 0, 0))).get(0);
+        assertTrue(cell.getImage().getWidth() >= larger && cell.getImage().getHeight() >= larger,
+                "A larger cell must not be upscaled from a thumbnail");
+        assertEquals(new Rectangle(0, 0, larger, larger), cell.getImageBounds());
+    }
+
+    @Test
+    void testRepeatPenaltySpreadsEqualTiles() {
+        float[] red = TileLibrary.features(TestImages.createFilledImage(10, 10, Color.RED));
+        float[] reddish = TileLibrary.features(TestImages.createFilledImage(10, 10, new Color(250, 5, 5)));
+        TileLibrary library = new TileLibrary(List.of(
+                new TileLibrary.Tile(new File("a.png"), 10, 10, red),
+                new TileLibrary.Tile(new File("b.png"), 10, 10, reddish)));
+        BufferedImage target = TestImages.createFilledImage(40, 10, Color.RED);
+
+        int[] plain = Photomosaic.generate(target, library, new Photomosaic.Options(4, 8, 2, 1, 0, 0)).tiles();
+        assertArrayEquals(new int[]{0, 0, 0, 0}, plain);
+        int[] spread = Photomosaic.generate(target, library, new Photomosaic.Options(4, 8, 2, 1, 100, 0)).tiles();
+        assertArrayEquals(new int[]{0, 1, 0, 1}, spread);
+    }
+}
@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class PixelKernelsTest {
+
+    // Mostly opaque or fully transparent pixels, like real images, with some partial alpha
+    private int[] createPixels(long seed, int count) {
+        Random random = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            int alpha = switch (random.nextInt(8)) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(256);
+                default -> 0xFF;
+            };
+            pixels[i] = (alpha << 24) | (random.nextInt() & 0xFFFFFF);
+        }
+        return pixels;
+    }
+
+    @Test
+    void testFallsBackToScalarWithoutVectorRequest() {
+        assertInstanceOf(ScalarPixelKernels.class, PixelKernels.create(false));
+    }
+
+    @Test
+    void testVectorKernelsMatchScalar() {
+        PixelKernels vector = PixelKernels.create(true);
+        assumeFalse(vector.getClass() == ScalarPixelKernels.class, "Vector API not available");
+        PixelKernels scalar = new ScalarPixelKernels();
+        // Odd count and offset so both the vector loop and the scalar tail run
+        int count = 1003;
+        int offset = 5;
+
+        int[] src = createPixels(1, count + offset);
+        int[] expected = createPixels(2, count + offset);
+        int[] actual = expected.clone();
+        scalar.blend(src, offset, expected, 0, count);
+        vector.blend(src, offset, actual, 0, count);
+        assertArrayEquals(expected, actual, "blend");
+
+        expected = createPixels(3, count + offset);
+        actual = expected.clone();
+        scalar.premultiply(expected, offset, count);
+        vector.premultiply(actual, offset, count);
+        assertArrayEquals(expected, actual, "premultiply");
+        scalar.unpremultiply(expected, offset, count);
+        vector.unpremultiply(actual, offset, count);
+        assertArrayEquals(expected, actual, "unpremultiply");
+        scalar.opaque(expected, offset, count);
+        vector.opaque(actual, offset, count);
+        assertArrayEquals(expected, actual, "opaque");
+
+        int[][] expectedSums = new int[4][count];
+        int[][] actualSums = new int[4][count];
+        scalar.accumulate(src, offset, -1234, expectedSums[0], expectedSums[1], expectedSums[2], expectedSums[3], count);
+        vector.accumulate(src, offset, -1234, actualSums[0], actualSums[1], actualSums[2], actualSums[3], count);
+        assertArrayEquals(expectedSums, actualSums, "accumulate");
+    }
+}
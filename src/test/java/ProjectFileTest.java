@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectFileTest {
+
+    @TempDir
+    Path dir;
+
+    private BufferedImage createGradient(int w, int h, int type) {
+        BufferedImage image = new BufferedImage(w, h, type);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, 0x80000000 | (x * 255 / w) << 16 | (y * 255 / h) << 8 | 0x40);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void testReopenedProjectRendersTheSameMosaic() throws IOException {
+        SourceImage shared = SourceImage.of(createGradient(100, 60, BufferedImage.TYPE_INT_RGB));
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent left = new ScaledComponent(shared, new Rectangle(0, 0, 40, 60));
+        canvas.add(left);
+        ScaledComponent right = new ScaledComponent(shared, new Rectangle(40, 10, 60, 40));
+        right.setImageBounds(new Rectangle(50, 5, 90, 60));
+        right.setResizedScale(1.5);
+        canvas.add(right);
+        ScaledComponent overlay = new ScaledComponent(createGradient(30, 30, BufferedImage.TYPE_INT_ARGB));
+        overlay.setImageLocation(new Point(20, 20));
+        canvas.add(overlay);
+        canvas.setComponentZOrder(overlay, 0);
+
+        File file = dir.resolve("session.mosaic").toFile();
+        canvas.saveProject(file);
+        ScaledCanvas reopened = new ScaledCanvas();
+        reopened.openProject(file);
+
+        assertEquals(3, reopened.getComponentCount());
+        ScaledComponent front = (ScaledComponent) reopened.getComponent(0);
+        assertEquals(new Rectangle(20, 20, 30, 30), front.getImageBounds());
+        ScaledComponent reopenedLeft = (ScaledComponent) reopened.getComponent(1);
+        ScaledComponent reopenedRight = (ScaledComponent) reopened.getComponent(2);
+        assertSame(reopenedLeft.getSourceImage(), reopenedRight.getSourceImage(), "Shared sources stay shared");
+        assertEquals(new Rectangle(40, 10, 60, 40), reopenedRight.getSourceRegion());
+        assertEquals(1.5, reopenedRight.getResizedScale());
+
+        TestImages.assertSamePixels(canvas.createUnscaledMosaicImage(), reopened.createUnscaledMosaicImage());
+    }
+
+    @Test
+    void testReopenedProxiesStayMappedUntilDrawn() throws IOException {
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(new ScaledComponent(createGradient(64, 48, BufferedImage.TYPE_INT_ARGB)));
+        File file = dir.resolve("session.mosaic").toFile();
+        canvas.saveProject(file);
+        BufferedImage expected = canvas.createUnscaledMosaicImage();
+
+        ScaledCanvas reopened = new ScaledCanvas();
+        reopened.openProject(file);
+        ScaledComponent component = (ScaledComponent) reopened.getComponent(0);
+        SourceImage source = component.getSourceImage();
+        assertFalse(source.isProxyCopied());
+        BufferedImage exported = reopened.createUnscaledMosaicImage();
+        assertFalse(source.isProxyCopied(), "A full-resolution proxy is exported from the mapping");
+        assertEquals(expected.getRGB(10, 20), exported.getRGB(10, 20));
+
+        assertEquals(64, component.getImage().getWidth());
+        assertTrue(source.isProxyCopied());
+        assertEquals(expected.getRGB(10, 20), component.getImage().getRGB(10, 20));
+    }
+
+    @Test
+    void testSavingOverTheOpenProject() throws IOException {
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(new ScaledComponent(createGradient(64, 48, BufferedImage.TYPE_INT_RGB)));
+        File file = dir.resolve("session.mosaic").toFile();
+        canvas.saveProject(file);
+        BufferedImage expected = canvas.createUnscaledMosaicImage();
+
+        // The reopened proxies are still mapped from the file they are saved over
+        ScaledCanvas reopened = new ScaledCanvas();
+        reopened.openProject(file);
+        reopened.saveProject(file);
+        ScaledCanvas again = new ScaledCanvas();
+        again.openProject(file);
+        assertEquals(expected.getRGB(30, 40), reopened.createUnscaledMosaicImage().getRGB(30, 40));
+        assertEquals(expected.getRGB(30, 40), again.createUnscaledMosaicImage().getRGB(30, 40));
+        assertEquals(1, dir.toFile().list().length, "The temporary file is gone");
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        File file = dir.resolve("not-a-project.mosaic").toFile();
+        Files.writeString(file.toPath(), "hello");
+        assertThrows(IOException.class, () -> ProjectFile.read(file));
+        assertTrue(ProjectFile.read(writeEmpty()).isEmpty());
+    }
+
+    private File writeEmpty() throws IOException {
+        File file = dir.resolve("empty.mosaic").toFile();
+        ProjectFile.write(file, List.of());
+        return file;
+    }
+}
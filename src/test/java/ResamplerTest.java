@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResamplerTest {
+
+    private BufferedImage createCheckerboard(int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, ((x + y) & 1) == 0 ? 0xFFFFFFFF : 0xFF000000);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void testDownscaleAveragesFineDetailWithEveryKernel() {
+        BufferedImage checkerboard = createCheckerboard(256, 192);
+        for (Resampler.Kernel kernel : Resampler.Kernel.values()) {
+            BufferedImage small = Resampler.resize(checkerboard, 32, 24, kernel);
+            assertEquals(BufferedImage.TYPE_INT_RGB, small.getType());
+            for (int y = 0; y < small.getHeight(); y++) {
+                for (int x = 0; x < small.getWidth(); x++) {
+                    int gray = small.getRGB(x, y) & 0xFF;
+                    assertTrue(Math.abs(gray - 128) <= 2, kernel + " should average to gray at " + x + "," + y + ": " + gray);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAreasMatchWholeImage() {
+        BufferedImage image = new BufferedImage(90, 70, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 3 << 24) | (x * 2 << 16) | (y * 3 << 8) | ((x * y) & 0xFF));
+            }
+        }
+        PixelStore pixels = new PixelRows(image);
+        Rectangle region = new Rectangle(5, 3, 80, 60);
+        int width = 50;
+        int height = 37;
+        int[] whole = new int[width * height];
+        Resampler.resample(pixels, region, width, height, new Rectangle(0, 0, width, height),
+                Resampler.Kernel.LANCZOS3, whole, 0, width);
+
+        int[] tiled = new int[width * height];
+        for (int y = 0; y < height; y += 16) {
+            for (int x = 0; x < width; x += 16) {
+                Rectangle area = new Rectangle(x, y, Math.min(16, width - x), Math.min(16, height - y));
+                Resampler.resample(pixels, region, width, height, area, Resampler.Kernel.LANCZOS3,
+                        tiled, y * width + x, width);
+            }
+        }
+        assertArrayEquals(whole, tiled);
+    }
+
+    @Test
+    void testTransparentPixelsDoNotBleedColor() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, x < 32 ? 0xFF0000FF : 0x00FF0000);
+            }
+        }
+        BufferedImage small = Resampler.resize(image, 16, 16, Resampler.Kernel.BICUBIC);
+
+        assertEquals(BufferedImage.TYPE_INT_ARGB, small.getType());
+        int edge = small.getRGB(8, 8);
+        assertTrue((edge >>> 24) > 0 && (edge >>> 24) < 255, "Edge pixel should be partly transparent");
+        assertEquals(0x0000FF, edge & 0xFFFFFF, "Only the opaque color contributes");
+        assertEquals(0, small.getRGB(15, 8) >>> 24);
+    }
+}
@@ -4,7 +4,12 @@ import org.junit.jupiter.api.*;
 import java.awt.image.BufferedImage;
 import java.awt.*;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.imageio.ImageIO;
+import javax.swing.*;
 
 public class ScaledCanvasTest {
 
@@ -41,8 +46,8 @@ public class ScaledCanvasTest {
     }
 
     @Test
-    public void testImageComponentSizeFromFile() {
-        canvas.addImageToCanvas(tempImageFile);
+    public void testImageComponentSizeFromFile() throws Exception {
+        canvas.addImagesToCanvas(List.of(tempImageFile)).get(10, TimeUnit.SECONDS);
         assertEquals(1, canvas.getComponentCount(), "Canvas should have 1 component");
 
         Component comp = canvas.getComponent(0);
@@ -51,4 +56,202 @@ public class ScaledCanvasTest {
         assertEquals(imageWidth, comp.getWidth(), "Initial Component Width should match the original image");
         assertEquals(imageHeight, comp.getHeight(), "Initial Component Height should match the original image");
     }
+
+    @Test
+    public void testImagesDecodeInBackgroundAndFailuresAreDropped() throws Exception {
+        File brokenFile = File.createTempFile("broken-image", ".png");
+        try {
+            java.nio.file.Files.writeString(brokenFile.toPath(), "not an image");
+
+            CompletableFuture<Void>[] pending = new CompletableFuture[1];
+            ScaledComponent[] placeholder = new ScaledComponent[1];
+            // On the EDT no decode can land before the placeholders are checked
+            SwingUtilities.invokeAndWait(() -> {
+                pending[0] = canvas.addImagesToCanvas(List.of(tempImageFile, brokenFile));
+                assertEquals(2, canvas.getComponentCount(), "Placeholders should be added before decoding finishes");
+                placeholder[0] = (ScaledComponent) canvas.getComponent(1);
+                assertEquals(AppDefaults.PLACEHOLDER_SIZE, placeholder[0].getWidth(),
+                        "The file is not read on the EDT, so its size is not known yet");
+            });
+            ScaledComponent sc = placeholder[0];
+
+            pending[0].get(10, TimeUnit.SECONDS);
+            assertTrue(sc.isLoaded(), "Pixels should be swapped in once decoded");
+            assertEquals(new Rectangle(0, 0, imageWidth, imageHeight), sc.getImageBounds());
+            assertEquals(imageWidth, sc.getWidth(), "The placeholder takes the image size once decoded");
+            assertEquals(Color.BLUE.getRGB(), sc.getImage().getRGB(0, 0));
+            assertEquals(1, canvas.getComponentCount());
+        } finally {
+            brokenFile.delete();
+        }
+    }
+
+    @Test
+    public void testSavingWaitsForImagesStillDecoding() throws Exception {
+        File project = File.createTempFile("session", ".mosaic");
+        try {
+            // On the EDT the decoded pixels cannot be swapped in before the save
+            SwingUtilities.invokeAndWait(() -> {
+                canvas.addImagesToCanvas(List.of(tempImageFile));
+                assertFalse(((ScaledComponent) canvas.getComponent(0)).isLoaded());
+                try {
+                    canvas.saveProject(project);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            List<ProjectFile.Item> items = ProjectFile.read(project);
+            assertEquals(1, items.size(), "The placeholder is saved with its decoded source");
+            assertEquals(tempImageFile.getAbsoluteFile(), items.get(0).source().getFile());
+            assertEquals(new Rectangle(0, 0, imageWidth, imageHeight), items.get(0).bounds());
+        } finally {
+            project.delete();
+        }
+    }
+
+    @Test
+    public void testPlaceholderDeletedWhileDecodingStaysEmpty() throws Exception {
+        CompletableFuture<?>[] done = new CompletableFuture<?>[1];
+        ScaledComponent[] placeholder = new ScaledComponent[1];
+        SwingUtilities.invokeAndWait(() -> {
+            done[0] = canvas.addImagesToCanvas(List.of(tempImageFile));
+            placeholder[0] = (ScaledComponent) canvas.getComponent(0);
+            canvas.deleteComponent(placeholder[0]);
+        });
+        long retained = canvas.getHistory().getRetainedBytes();
+        done[0].get(10, TimeUnit.SECONDS);
+
+        assertFalse(placeholder[0].isLoaded(), "A deleted placeholder is not given pixels");
+        assertEquals(0, canvas.getComponentCount());
+        assertEquals(retained, canvas.getHistory().getRetainedBytes(), "The history budget does not drift");
+    }
+
+    @Test
+    public void testSceneModeZoomsWithoutLayingOutUnselectedImages() {
+        BufferedImage red = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = red.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 40, 40);
+        g.dispose();
+        ScaledComponent back = new ScaledComponent(red);
+        back.setImageLocation(new Point(100, 0));
+        ScaledComponent selected = new ScaledComponent(new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB));
+        canvas.add(back);
+        canvas.add(selected);
+        canvas.updateChildrenBounds();
+        canvas.selectComponent(selected);
+        canvas.setSceneMode(true);
+        assertFalse(back.isVisible());
+        assertTrue(selected.isVisible());
+
+        Rectangle staleBounds = back.getBounds();
+        canvas.setScale(0.5);
+        canvas.updateChildrenBounds();
+        assertEquals(staleBounds, back.getBounds(), "Unselected images are not laid out in scene mode");
+        assertEquals(new Rectangle(0, 0, 20, 20), selected.getBounds());
+
+        canvas.setSize(200, 100);
+        BufferedImage screen = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D sg = screen.createGraphics();
+        canvas.paint(sg);
+        sg.dispose();
+        assertEquals(Color.RED.getRGB(), screen.getRGB(60, 10), "Hidden image is painted through the scale transform");
+
+        canvas.setSceneMode(false);
+        assertTrue(back.isVisible());
+        assertEquals(new Rectangle(50, 0, 20, 20), back.getBounds());
+    }
+
+    @Test
+    public void testViewportKeepsOnlyNearbyImagesLiveAndPaintsOnlyVisibleOnes() throws Exception {
+        // On the EDT, so the layout that revalidate queues cannot move the view halfway through
+        try {
+            SwingUtilities.invokeAndWait(this::checkViewportKeepsOnlyNearbyImagesLive);
+        } catch (java.lang.reflect.InvocationTargetException ex) {
+            if (ex.getCause() instanceof Error error) throw error;
+            throw ex;
+        }
+    }
+
+    private void checkViewportKeepsOnlyNearbyImagesLive() {
+        BufferedImage image = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        int[] paints = new int[1];
+        List<ScaledComponent> components = new ArrayList<>();
+        for (int j = 0; j < 50; j++) {
+            for (int i = 0; i < 50; i++) {
+                ScaledComponent sc = new ScaledComponent(image) {
+                    @Override
+                    public void paint(Graphics g) {
+                        paints[0]++;
+                        super.paint(g);
+                    }
+                };
+                sc.setImageLocation(new Point(i * 100, j * 100));
+                components.add(sc);
+            }
+        }
+        JViewport viewport = new JViewport();
+        viewport.setView(canvas);
+        viewport.setBounds(0, 0, 200, 100);
+        canvas.addComponents(components);
+        viewport.doLayout();
+
+        // The view plus half its size around it: columns 0-3 of rows 0-1
+        assertEquals(8, components.stream().filter(Component::isVisible).count());
+        assertEquals(new Dimension(4940, 4940), canvas.getPreferredSize());
+
+        viewport.setViewPosition(new Point(1000, 1000));
+        assertFalse(components.get(0).isVisible());
+        ScaledComponent inView = components.get(10 * 50 + 10);
+        assertTrue(inView.isVisible());
+        assertEquals(new Rectangle(1000, 1000, 40, 40), inView.getBounds());
+        long live = components.stream().filter(Component::isVisible).count();
+        assertTrue(live <= 12, "Only images near the view are laid out: " + live);
+
+        BufferedImage screen = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        g.translate(-1000, -1000);
+        g.setClip(1000, 1000, 200, 100);
+        canvas.paint(g);
+        g.dispose();
+        assertEquals(2, paints[0], "Only images inside the clip are painted");
+
+        canvas.zoomAt(0.5, new Point(1000, 1000));
+        assertEquals(new Point(500, 500), viewport.getViewPosition());
+        assertEquals(new Rectangle(500, 500, 20, 20), inView.getBounds());
+        assertFalse(components.get(components.size() - 1).isVisible());
+    }
+
+    @Test
+    public void testSelectionAndZOrderRepaintOnlyAffectedBounds() {
+        ScaledComponent a = new ScaledComponent(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB));
+        ScaledComponent b = new ScaledComponent(new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB));
+        b.setImageLocation(new Point(500, 400));
+        canvas.add(a);
+        canvas.add(b);
+        canvas.updateChildrenBounds();
+        canvas.setSize(1000, 1000);
+
+        List<Rectangle> dirty = new ArrayList<>();
+        RepaintManager previous = RepaintManager.currentManager(canvas);
+        RepaintManager.setCurrentManager(new RepaintManager() {
+            @Override
+            public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+                if (c == canvas) dirty.add(new Rectangle(x, y, w, h));
+            }
+        });
+        try {
+            canvas.selectComponent(a);
+            canvas.bringToFront(a);
+        } finally {
+            RepaintManager.setCurrentManager(previous);
+        }
+
+        Rectangle allowed = a.getBounds();
+        allowed.grow(ScaledCanvas.REPAINT_MARGIN, ScaledCanvas.REPAINT_MARGIN);
+        assertFalse(dirty.isEmpty());
+        for (Rectangle r : dirty) {
+            assertTrue(allowed.contains(r), "Repainted " + r + " outside " + allowed);
+        }
+    }
 }
@@ -4,6 +4,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,4 +34,110 @@ class ScaledComponentTest {
         assertEquals(80, cropped.getWidth(), "Width should adjust by trimming negative x");
         assertEquals(90, cropped.getHeight(), "Height should adjust by trimming negative y");
     }
+
+    @Test
+    void testCropKeepsReferenceToOriginalSource() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(50, 30, 0xFF123456);
+        ScaledComponent sc = new ScaledComponent(image);
+
+        sc.enterCropMode();
+        sc.setCropRect(new Rectangle(40, 20, 100, 60));
+        Method performCropMethod = ScaledComponent.class.getDeclaredMethod("performCrop");
+        performCropMethod.setAccessible(true);
+        performCropMethod.invoke(sc);
+
+        assertSame(image, sc.getSource(), "Crop must not copy the source pixels");
+        assertEquals(new Rectangle(40, 20, 100, 60), sc.getSourceRegion());
+        assertEquals(new Rectangle(40, 20, 100, 60), sc.getImageBounds());
+        assertEquals(0xFF123456, sc.getImage().getRGB(10, 10));
+
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(sc);
+        assertEquals(0xFF123456, canvas.createUnscaledMosaicImage().getRGB(10, 10));
+    }
+
+    @Test
+    void testVerticalSplitSharesSourceAndKeepsRow() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        ScaledComponent sc = new ScaledComponent(image);
+        sc.setImageLocation(new Point(30, 40));
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(sc);
+
+        Method splitMethod = ScaledComponent.class.getDeclaredMethod("performVerticalSplit", int.class);
+        splitMethod.setAccessible(true);
+        splitMethod.invoke(sc, 120);
+
+        assertEquals(2, canvas.getComponentCount());
+        ScaledComponent left = (ScaledComponent) canvas.getComponent(0);
+        ScaledComponent right = (ScaledComponent) canvas.getComponent(1);
+        if (left.getImageLocation().x > right.getImageLocation().x) {
+            ScaledComponent swap = left;
+            left = right;
+            right = swap;
+        }
+        assertSame(image, left.getSource());
+        assertSame(image, right.getSource());
+        assertEquals(new Rectangle(0, 0, 120, 100), left.getSourceRegion());
+        assertEquals(new Rectangle(120, 0, 80, 100), right.getSourceRegion());
+        assertEquals(new Rectangle(30, 40, 120, 100), left.getImageBounds());
+        assertEquals(new Rectangle(150, 40, 80, 100), right.getImageBounds());
+    }
+
+    @Test
+    void testGridSplitTilesSourceAndBoundsInOneEdit() {
+        BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB);
+        ScaledComponent sc = new ScaledComponent(image);
+        sc.setImageBounds(new Rectangle(10, 20, 203, 101));
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(sc);
+
+        List<ScaledComponent> pieces = sc.splitGrid(3, 2);
+
+        assertEquals(6, pieces.size());
+        assertEquals(6, canvas.getComponentCount());
+        long regionArea = 0;
+        long boundsArea = 0;
+        Rectangle regionUnion = new Rectangle(pieces.get(0).getSourceRegion());
+        Rectangle boundsUnion = new Rectangle(pieces.get(0).getImageBounds());
+        for (ScaledComponent piece : pieces) {
+            assertSame(image, piece.getSource());
+            // A view of the shared raster, not a copy
+            assertSame(image.getRaster().getDataBuffer(), piece.getImage().getRaster().getDataBuffer());
+            Rectangle region = piece.getSourceRegion();
+            Rectangle bounds = piece.getImageBounds();
+            regionArea += (long) region.width * region.height;
+            boundsArea += (long) bounds.width * bounds.height;
+            regionUnion = regionUnion.union(region);
+            boundsUnion = boundsUnion.union(bounds);
+        }
+        assertEquals(new Rectangle(0, 0, 100, 50), regionUnion);
+        assertEquals(100 * 50, regionArea);
+        assertEquals(new Rectangle(10, 20, 203, 101), boundsUnion);
+        assertEquals(203 * 101, boundsArea);
+        assertEquals(new Rectangle(33, 0, 33, 25), pieces.get(1).getSourceRegion());
+
+        canvas.getHistory().undo();
+        assertEquals(1, canvas.getComponentCount());
+        assertSame(sc, canvas.getComponent(0));
+        canvas.getHistory().redo();
+        assertEquals(6, canvas.getComponentCount());
+    }
+
+    @Test
+    void testGridSplitRejectsGridsFinerThanTheImage() {
+        ScaledComponent sc = new ScaledComponent(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB));
+        sc.setImageBounds(new Rectangle(0, 0, 5, 50));
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(sc);
+
+        assertThrows(IllegalArgumentException.class, () -> sc.splitGrid(10, 1));
+        assertThrows(IllegalArgumentException.class, () -> sc.splitGrid(1, 51));
+        assertEquals(1, canvas.getComponentCount());
+        for (ScaledComponent piece : sc.splitGrid(5, 1)) {
+            assertEquals(1, piece.getImageBounds().width);
+        }
+        assertEquals(5, canvas.getComponentCount());
+    }
 }
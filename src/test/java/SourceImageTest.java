@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceImageTest {
+
+    private File largeImageFile;
+    private final int width = AppDefaults.PROXY_MAX_DIMENSION * 2 + 100;
+    private final int height = 60;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.setColor(Color.GREEN);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        largeImageFile = File.createTempFile("large-image", ".png");
+        ImageIO.write(image, "png", largeImageFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        largeImageFile.delete();
+    }
+
+    @Test
+    void testProxyDecodeKeepsFullResolutionGeometry() throws IOException {
+        SourceImage source = ImageLoader.decodeSource(largeImageFile);
+
+        assertTrue(source.isProxy());
+        assertFalse(source.isFullResolutionLoaded(), "Full resolution should not be decoded on import");
+        assertEquals(width, source.getWidth());
+        assertEquals(height, source.getHeight());
+        assertTrue(source.getProxy().getWidth() <= AppDefaults.PROXY_MAX_DIMENSION);
+
+        ScaledComponent sc = new ScaledComponent(source, new Rectangle(0, 0, width, height));
+        assertEquals(new Rectangle(0, 0, width, height), sc.getImageBounds());
+        assertEquals(source.getProxy().getWidth(), sc.getImage().getWidth());
+    }
+
+    @Test
+    void testFullResolutionIsDecodedOnExport() throws IOException {
+        SourceImage source = ImageLoader.decodeSource(largeImageFile);
+        ScaledCanvas canvas = new ScaledCanvas();
+        canvas.add(new ScaledComponent(source, new Rectangle(0, 0, width, height)));
+
+        BufferedImage mosaic = canvas.createUnscaledMosaicImage();
+
+        assertTrue(source.isFullResolutionLoaded());
+        assertEquals(width, mosaic.getWidth());
+        assertEquals(Color.RED.getRGB(), mosaic.getRGB(width / 2 - 1, 0));
+        assertEquals(Color.GREEN.getRGB(), mosaic.getRGB(width / 2, 0));
+    }
+
+    @Test
+    void testImportConvertsToCompatibleLayout() throws IOException {
+        // PNG decodes to 3BYTE_BGR; headless, the compatible opaque layout is INT_RGB
+        BufferedImage proxy = ImageLoader.decodeSource(largeImageFile).getProxy();
+        assertEquals(BufferedImage.TYPE_INT_RGB, proxy.getType());
+        assertEquals(0xFFFF0000, proxy.getRGB(0, 0));
+        assertEquals(0xFF00FF00, proxy.getRGB(proxy.getWidth() - 1, 0));
+
+        BufferedImage translucent = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        assertSame(translucent, ImageLoader.toCompatible(translucent));
+
+        // Screens often report premultiplied layouts, which PixelRows reads directly
+        BufferedImage premultiplied = new BufferedImage(3, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+        premultiplied.setRGB(0, 0, 0x80FF8000);
+        premultiplied.setRGB(1, 0, 0xFF123456);
+        int[] row = new int[3];
+        new PixelRows(premultiplied).read(0, row);
+        assertArrayEquals(premultiplied.getRGB(0, 0, 3, 1, null, 0, 3), row);
+    }
+
+    @Test
+    void testProxyRegionCoversRequestedArea() {
+        SourceImage source = new SourceImage(null, 4000, 2000, new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB));
+
+        assertEquals(new Rectangle(250, 125, 250, 125), source.toProxyRegion(new Rectangle(1000, 500, 1000, 500)));
+        assertEquals(new Rectangle(0, 0, 1, 1), source.toProxyRegion(new Rectangle(1, 1, 2, 2)));
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+
+    @Test
+    void testRangeAndPointQueriesReturnEachItemOnce() {
+        SpatialIndex<String> index = new SpatialIndex<>(100);
+        index.insert("a", new Rectangle(0, 0, 250, 250));
+        index.insert("b", new Rectangle(300, 0, 50, 50));
+        index.insert("c", new Rectangle(-150, -150, 100, 100));
+
+        List<String> hits = index.query(new Rectangle(0, 0, 400, 100));
+        assertEquals(Set.of("a", "b"), new HashSet<>(hits));
+        assertEquals(2, hits.size(), "Items spanning several cells must not be reported twice");
+
+        assertEquals(List.of("c"), index.queryPoint(new Point(-100, -100)));
+        assertTrue(index.queryPoint(new Point(275, 10)).isEmpty());
+        assertEquals(new Rectangle(-150, -150, 500, 400), index.getBounds());
+    }
+
+    @Test
+    void testUpdateAndRemoveKeepIndexInSync() {
+        SpatialIndex<String> index = new SpatialIndex<>(64);
+        index.insert("a", new Rectangle(0, 0, 10, 10));
+        index.insert("b", new Rectangle(1000, 1000, 10, 10));
+
+        index.update("a", new Rectangle(500, 500, 10, 10));
+        assertTrue(index.queryPoint(new Point(5, 5)).isEmpty());
+        assertEquals(List.of("a"), index.queryPoint(new Point(505, 505)));
+
+        index.remove("b");
+        assertEquals(1, index.size());
+        assertEquals(new Rectangle(500, 500, 10, 10), index.getBounds());
+    }
+
+    @Test
+    void testLargeItemsAreFoundWithoutFillingTheGrid() {
+        SpatialIndex<String> index = new SpatialIndex<>(10);
+        index.insert("huge", new Rectangle(0, 0, 100000, 100000));
+        index.insert("small", new Rectangle(5, 5, 2, 2));
+
+        assertEquals(Set.of("huge", "small"), new HashSet<>(index.query(new Rectangle(0, 0, 20, 20))));
+        assertEquals(List.of("huge"), index.queryPoint(new Point(50000, 50000)));
+    }
+
+    @Test
+    void testCanvasIndexFollowsComponentChanges() {
+        ScaledCanvas canvas = new ScaledCanvas();
+        ScaledComponent sc = new ScaledComponent(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB));
+        canvas.add(sc);
+
+        sc.setImageLocation(new Point(1000, 2000));
+        assertSame(sc, canvas.topComponentAt(new Point(1050, 2025)));
+        assertNull(canvas.topComponentAt(new Point(50, 25)));
+        assertEquals(new Rectangle(1000, 2000, 100, 50), canvas.getUnscaledImagesBounds());
+
+        canvas.remove(sc);
+        assertNull(canvas.topComponentAt(new Point(1050, 2025)));
+        assertEquals(new Rectangle(0, 0, 0, 0), canvas.getUnscaledImagesBounds());
+    }
+}
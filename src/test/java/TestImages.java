@@ -0,0 +1,50 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Images and pixel assertions shared by the rendering tests. */
+final class TestImages {
+    private TestImages() {
+    }
+
+    static BufferedImage createFilledImage(int w, int h, Color color) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, w, h);
+        g.dispose();
+        return image;
+    }
+
+    /** A filled image with a white diagonal, so a flipped, shifted or stretched copy does not match it. */
+    static BufferedImage createMarkedImage(int w, int h, Color color) {
+        BufferedImage image = createFilledImage(w, h, color);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.drawLine(0, 0, w - 1, h - 1);
+        g.dispose();
+        return image;
+    }
+
+    static BufferedImage createNoiseImage(Random random, int w, int h, int type) {
+        BufferedImage image = new BufferedImage(w, h, type);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel mismatch at " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiledCompositorTest {
+    private List<MosaicTile> createOverlappingTiles() {
+        Random random = new Random(42);
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR};
+        List<MosaicTile> tiles = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int srcW = 20 + random.nextInt(80);
+            int srcH = 20 + random.nextInt(80);
+            BufferedImage image = TestImages.createNoiseImage(random, srcW, srcH, types[i % types.length]);
+            if (i % 4 == 0) {
+                image = image.getSubimage(3, 5, srcW - 6, srcH - 10);
+            }
+            double scale = 0.4 + random.nextDouble() * 2;
+            Rectangle bounds = new Rectangle(random.nextInt(200) - 50, random.nextInt(150) - 30,
+                    Math.max(1, (int) (image.getWidth() * scale)), Math.max(1, (int) (image.getHeight() * scale)));
+            tiles.add(new MosaicTile(image, bounds));
+        }
+        return tiles;
+    }
+
+    @Test
+    void testParallelOutputIsPixelIdenticalToSerial() {
+        MosaicRenderer renderer = new MosaicRenderer(createOverlappingTiles());
+        Rectangle bounds = renderer.getBounds();
+
+        BufferedImage serial = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        renderer.renderInto(serial, bounds);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int tileSize : new int[]{1, 13, 64, 1024}) {
+                BufferedImage parallel = renderer.setCompositor(new TiledCompositor(pool, tileSize)).render();
+                for (int y = 0; y < bounds.height; y++) {
+                    for (int x = 0; x < bounds.width; x++) {
+                        assertEquals(serial.getRGB(x, y), parallel.getRGB(x, y),
+                                "Pixel mismatch at " + x + "," + y + " with tile size " + tileSize);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
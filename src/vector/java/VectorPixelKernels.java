@@ -0,0 +1,102 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelKernels} on the incubating Vector API. Only partly transparent
+ * pixels need a per-channel division, and photos rarely have any, so a vector
+ * holding one is handed to the scalar code while everything else is processed a
+ * whole vector at a time. Loaded by name from PixelKernels.create.
+ */
+public class VectorPixelKernels extends ScalarPixelKernels {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void blend(int[] src, int srcOffset, int[] dst, int dstOffset, int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            IntVector s = IntVector.fromArray(SPECIES, src, srcOffset + i);
+            IntVector alpha = s.lanewise(VectorOperators.LSHR, 24);
+            VectorMask<Integer> opaque = alpha.eq(0xFF);
+            if (opaque.allTrue()) {
+                s.intoArray(dst, dstOffset + i);
+            } else if (opaque.or(alpha.eq(0)).allTrue()) {
+                IntVector.fromArray(SPECIES, dst, dstOffset + i).blend(s, opaque).intoArray(dst, dstOffset + i);
+            } else {
+                super.blend(src, srcOffset + i, dst, dstOffset + i, SPECIES.length());
+            }
+        }
+        super.blend(src, srcOffset + i, dst, dstOffset + i, count - i);
+    }
+
+    @Override
+    public void opaque(int[] pixels, int offset, int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, pixels, offset + i).or(0xFF000000).intoArray(pixels, offset + i);
+        }
+        super.opaque(pixels, offset + i, count - i);
+    }
+
+    @Override
+    public void premultiply(int[] pixels, int offset, int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            if (!clearTransparent(pixels, offset + i)) {
+                super.premultiply(pixels, offset + i, SPECIES.length());
+            }
+        }
+        super.premultiply(pixels, offset + i, count - i);
+    }
+
+    @Override
+    public void unpremultiply(int[] pixels, int offset, int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            if (!clearTransparent(pixels, offset + i)) {
+                super.unpremultiply(pixels, offset + i, SPECIES.length());
+            }
+        }
+        super.unpremultiply(pixels, offset + i, count - i);
+    }
+
+    @Override
+    public void accumulate(int[] pixels, int offset, int weight, int[] sumA, int[] sumR, int[] sumG, int[] sumB,
+                           int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            IntVector p = IntVector.fromArray(SPECIES, pixels, offset + i);
+            IntVector.fromArray(SPECIES, sumA, i)
+                    .add(p.lanewise(VectorOperators.LSHR, 24).mul(weight)).intoArray(sumA, i);
+            IntVector.fromArray(SPECIES, sumR, i)
+                    .add(p.lanewise(VectorOperators.LSHR, 16).and(0xFF).mul(weight)).intoArray(sumR, i);
+            IntVector.fromArray(SPECIES, sumG, i)
+                    .add(p.lanewise(VectorOperators.LSHR, 8).and(0xFF).mul(weight)).intoArray(sumG, i);
+            IntVector.fromArray(SPECIES, sumB, i)
+                    .add(p.and(0xFF).mul(weight)).intoArray(sumB, i);
+        }
+        for (; i < count; i++) {
+            int p = pixels[offset + i];
+            sumA[i] += (p >>> 24) * weight;
+            sumR[i] += ((p >> 16) & 0xFF) * weight;
+            sumG[i] += ((p >> 8) & 0xFF) * weight;
+            sumB[i] += (p & 0xFF) * weight;
+        }
+    }
+
+    /**
+     * Handles one vector for premultiply and unpremultiply when every pixel is
+     * opaque (left alone) or fully transparent (zeroed); returns false otherwise.
+     */
+    private static boolean clearTransparent(int[] pixels, int offset) {
+        IntVector v = IntVector.fromArray(SPECIES, pixels, offset);
+        IntVector alpha = v.lanewise(VectorOperators.LSHR, 24);
+        VectorMask<Integer> clear = alpha.eq(0);
+        if (!alpha.eq(0xFF).or(clear).allTrue()) return false;
+        if (clear.anyTrue()) {
+            v.blend(0, clear).intoArray(pixels, offset);
+        }
+        return true;
+    }
+}